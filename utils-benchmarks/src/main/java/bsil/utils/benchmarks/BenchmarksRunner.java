@@ -0,0 +1,66 @@
+package bsil.utils.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.nonNull;
+
+/**
+ * runs benchmarks once per threads count, in throughput (ops/s) and sample time (latency percentiles) modes,
+ *  with allocations per operation from the GC profiler
+ *  results are written as JSON, one file per threads count, to compare versions :
+ *  java -Dbenchmarks.threads=1,4 -jar benchmarks.jar [results directory] [benchmarks regexp]
+ */
+public final class BenchmarksRunner {
+
+    public static final String THREADS_PROPERTY = "benchmarks.threads";
+    private static final String DEFAULT_RESULTS_DIRECTORY = "target/jmh";
+    private static final String DEFAULT_INCLUDE = CipheringBenchmark.class.getSimpleName();
+
+    private BenchmarksRunner() {
+    }
+
+    public static void main(final String[] args)
+    throws RunnerException {
+        final File resultsDirectory = new File((0 < args.length) ? args[0] : DEFAULT_RESULTS_DIRECTORY);
+        final String include = (1 < args.length) ? args[1] : DEFAULT_INCLUDE;
+        if (!resultsDirectory.isDirectory() && !resultsDirectory.mkdirs()) {
+            throw new IllegalArgumentException(format("Cannot create results directory {0}", resultsDirectory));
+        }
+        final String resultsName = include.replaceAll("\\W", "_");
+        for (final int threads : threadsCounts()) {
+            final Options options = new OptionsBuilder().include(include)
+                                                        .threads(threads)
+                                                        .mode(Mode.Throughput)
+                                                        .mode(Mode.SampleTime)
+                                                        .addProfiler(GCProfiler.class)
+                                                        .resultFormat(ResultFormatType.JSON)
+                                                        .result(new File(resultsDirectory,
+                                                                         format("{0}-t{1}.json", resultsName, threads))
+                                                                    .getPath())
+                                                        .build();
+            new Runner(options).run();
+        }
+    }
+
+    // given ones, or 1 then powers of 2 up to available processors
+    private static int[] threadsCounts() {
+        final String threads = System.getProperty(THREADS_PROPERTY);
+        if (nonNull(threads)) {
+            return Arrays.stream(threads.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+        final int processors = Runtime.getRuntime().availableProcessors();
+        return IntStream.iterate(1, count -> count <= processors, count -> count * 2).toArray();
+    }
+
+}
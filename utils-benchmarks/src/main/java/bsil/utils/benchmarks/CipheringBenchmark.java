@@ -0,0 +1,64 @@
+package bsil.utils.benchmarks;
+
+import bsil.utils.ciphering.Cipher;
+import bsil.utils.ciphering.CipheringConfig;
+import bsil.utils.ciphering.CipheringTransformation;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * hot path of ciphering : a content ciphered then unciphered as JsonResponse does
+ *  one Cipher shared by all benchmark threads, as in production
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CipheringBenchmark {
+
+    private static final String KEY = "MyCipheringKey!!";
+
+    @Param({"AES/ECB/PKCS5Padding", "AES/CTR/NoPadding"})
+    private String transformation;
+
+    // 64B, 1KB, 64KB, 1MB, 16MB
+    @Param({"64", "1024", "65536", "1048576", "16777216"})
+    private int payloadLength;
+
+    private Cipher ciphering;
+    private String content;
+    private byte[] cipheredContent;
+
+    @Setup
+    public void setup()
+    throws GeneralSecurityException {
+        final CipheringConfig config = CipheringConfig.ofKeyAndTransformation(KEY, this.transformation);
+        final CipheringTransformation cipheringTransformation = config.cipheringTransformation();
+        this.ciphering = cipheringTransformation.isPaddedAlgorithm()
+                             ? Cipher.createPaddedCiphering(config, len -> StringUtils.repeat(" ", len))
+                             : Cipher.createCiphering(config);
+        this.content = RandomStringUtils.randomAlphanumeric(this.payloadLength);
+        this.cipheredContent = this.ciphering.cipher(this.content);
+    }
+
+    @Benchmark
+    public byte[] cipher() {
+        return this.ciphering.cipher(this.content);
+    }
+
+    @Benchmark
+    public byte[] uncipher() {
+        return this.ciphering.uncipher(this.cipheredContent);
+    }
+
+}
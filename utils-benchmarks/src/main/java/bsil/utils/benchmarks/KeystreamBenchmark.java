@@ -0,0 +1,64 @@
+package bsil.utils.benchmarks;
+
+import bsil.utils.ciphering.Cipher;
+import bsil.utils.ciphering.CipheringConfig;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * latency of ciphering small contents in CTR mode, with keystreams computed inline or ahead
+ *  look at p0.99 of sample time results, and at the hits printed after each trial :
+ *  java -jar benchmarks.jar [results directory] KeystreamBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeystreamBenchmark {
+
+    private static final String KEY = "MyCipheringKey!!";
+
+    @Param({"inline", "precomputed"})
+    private String keystreams;
+
+    @Param({"64", "512"})
+    private int payloadLength;
+
+    private Cipher ciphering;
+    private String content;
+
+    @Setup
+    public void setup()
+    throws GeneralSecurityException {
+        final Cipher inline = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(KEY, "AES/CTR/NoPadding"));
+        this.ciphering = "precomputed".equals(this.keystreams)
+                             ? inline.withPrecomputedKeystreams(4096, this.payloadLength)
+                             : inline;
+        this.content = RandomStringUtils.randomAlphanumeric(this.payloadLength);
+    }
+
+    @TearDown
+    public void printHits() {
+        System.out.println(format("keystreams {0} : {1} hits, {2} misses", this.keystreams,
+                                  this.ciphering.precomputedKeystreamsHits(),
+                                  this.ciphering.precomputedKeystreamsMisses()));
+    }
+
+    @Benchmark
+    public byte[] cipher() {
+        return this.ciphering.cipher(this.content);
+    }
+
+}
@@ -1,186 +1,1122 @@
 package bsil.utils.ciphering;
 
-import org.apache.commons.lang.ArrayUtils;
-
-import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
-import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Utility type made to simplify Ciphering
  *  supported padded algorithms : AES
+ *  supported modes needing an IV : CTR, GCM (authenticated, with counter based nonces)
+ *  instances are thread safe and lock free : each thread works with its own JCA ciphers, IV never being shared
+ *  ciphered contents start with their IV, or with a versioned envelope (see {@link CipheringEnvelope}) when
+ *  created from a {@link CipheringKeyRing}
  */
 public final class Cipher {
 
-    private static final String SECURE_RANDOM_ALGORITHM = "SHA1PRNG";
+    private static final byte[] NO_HEADER = new byte[0];
+    private static final byte[] NO_PADDING = new byte[0];
+    // a multiple of any block size, big enough for a segment to outweigh its scheduling
+    private static final int PARALLEL_SEGMENT_LENGTH = 1 << 20;
 
-    private final String key;
     private final CipheringTransformation transformation;
+    // prepared once, SecretKeySpec being immutable
+    private final SecretKeySpec secretKey;
+    // null when contents are not enveloped
+    private final CipheringKeyRing keyRing;
+    private final int keyLength;
+    private final boolean ivRequired;
+    private final int ivLength;
+    private final int headerLength;
+    private final IvSource ivSource;
     private final IntFunction<String> paddingGenerator;
-    private byte[] lastGeneratedIv;
-    private byte[] lastExtractedIv;
+    // UTF-8 paddings by number of padding chars, from 1 to key length ; null when contents are not padded
+    private final byte[][] paddings;
+    // null when contents are not compressed
+    private final CipheringCompression compression;
+    // null when CTR keystreams are computed inline only
+    private final KeystreamRing keystreams;
+
+    // JCA ciphers are stateful : one per thread and per mode, initialized with the key once used
+    private final Engines encryptors;
+    private final Engines decryptors;
+    // for contents written piece by piece, which may cipher other contents meanwhile
+    private final Engines writtenEncryptors;
 
-    private Cipher(final String key, final CipheringTransformation transformation,
-                   final IntFunction<String> paddingGenerator){
-        this.key= requireNonNull(key);
+    private Cipher(final CipheringTransformation transformation, final SecretKeySpec secretKey,
+                   final CipheringKeyRing keyRing, final IntFunction<String> paddingGenerator,
+                   final IvSource ivSource, final CipheringCompression compression,
+                   final KeystreamRing keystreams){
         this.transformation= requireNonNull(transformation);
-        this.paddingGenerator = requireNonNull(paddingGenerator);
+        this.secretKey = requireNonNull(secretKey);
+        this.keyRing = keyRing;
+        this.keyLength = secretKey.getEncoded().length;
+        this.ivRequired = transformation.isIVRequired();
+        this.ivLength = transformation.ivLength();
+        this.headerLength = isNull(keyRing) ? this.ivLength : CipheringEnvelope.lengthFor(transformation);
+        this.ivSource = requireNonNull(ivSource);
+        this.paddingGenerator = paddingGenerator;
+        this.paddings = (nonNull(paddingGenerator) && transformation.isPaddedAlgorithm())
+                            ? paddingsOf(paddingGenerator, this.keyLength)
+                            : null;
+        this.compression = compression;
+        this.keystreams = keystreams;
+        this.encryptors = new Engines(this::newEngine);
+        this.decryptors = new Engines(this::newEngine);
+        this.writtenEncryptors = new Engines(this::newEngine);
+    }
+
+
+
+    public static Cipher createCiphering(final CipheringConfig cipheringConfig) {
+        final CipheringTransformation transformation = notPadded(cipheringConfig.cipheringTransformation());
+        return new Cipher(transformation, secretKeyOf(cipheringConfig), null, null,
+                          ivSourceFor(transformation, cipheringConfig), null, null);
     }
 
-    private Cipher(final String key, final CipheringTransformation transformation) {
-        this.key = requireNonNull(key);
-        this.transformation = requireNonNull(transformation);
+    public static Cipher createPaddedCiphering(final CipheringConfig cipheringConfig,
+                                               final IntFunction<String> paddingGenerator) {
+        final CipheringTransformation transformation = cipheringConfig.cipheringTransformation();
+        return new Cipher(transformation, secretKeyOf(cipheringConfig), null, requireNonNull(paddingGenerator),
+                          ivSourceFor(transformation, cipheringConfig), null, null);
+    }
+
+    /**
+     * ciphering producing enveloped contents, ciphered with current key of the ring, unciphered by any key of it
+     */
+    public static Cipher createCiphering(final CipheringKeyRing keyRing) {
+        final CipheringTransformation transformation = notPadded(keyRing.cipheringTransformation());
+        return new Cipher(transformation, keyRing.currentKey(), keyRing, null, defaultIvSourceFor(transformation),
+                          null, null);
+    }
+
+    /**
+     * @see #createCiphering(CipheringKeyRing)
+     */
+    public static Cipher createPaddedCiphering(final CipheringKeyRing keyRing,
+                                               final IntFunction<String> paddingGenerator) {
+        final CipheringTransformation transformation = keyRing.cipheringTransformation();
+        return new Cipher(transformation, keyRing.currentKey(), keyRing, requireNonNull(paddingGenerator),
+                          defaultIvSourceFor(transformation), null, null);
+    }
+
+    /**
+     * @param ivSource where IVs come from when the transformation requires some
+     * @return same ciphering, taking its IVs from given source
+     */
+    public Cipher withIvSource(final IvSource ivSource) {
+        return new Cipher(this.transformation, this.secretKey, this.keyRing, this.paddingGenerator, ivSource,
+                          this.compression, isNull(this.keystreams) ? null : this.keystreams.withIvSource(ivSource));
+    }
+
+    /**
+     * compress then cipher : contents carry a flag in their envelope, so only enveloped ciphering can compress
+     *  compressed contents are not padded by the padding generator, and are only unciphered as a whole
+     * @param compression how and from which length contents are compressed
+     * @return same ciphering, compressing contents given as a whole (String, CharSequence or bytes)
+     */
+    public Cipher withCompression(final CipheringCompression compression) {
+        if (isNull(this.keyRing)) {
+            throw new IllegalStateException("Compression needs enveloped contents : use a ciphering of a key ring");
+        }
+        return new Cipher(this.transformation, this.secretKey, this.keyRing, this.paddingGenerator, this.ivSource,
+                          requireNonNull(compression), this.keystreams);
+    }
+
+    /**
+     * @see #withPrecomputedKeystreams(int, int, CipheringExecutor)
+     */
+    public Cipher withPrecomputedKeystreams(final int slots, final int slotLength) {
+        return withPrecomputedKeystreams(slots, slotLength, CipheringExecutor.shared());
+    }
+
+    /**
+     * CTR keystreams of fresh IVs computed ahead in the background : ciphering small contents is then a XOR only
+     *  contents longer than a slot, or ciphered while no keystream is ready, are ciphered inline
+     *  pays off when contents come slower than keystreams are computed, on spare cores : under a saturating load,
+     *  refills compete with ciphering threads (see KeystreamBenchmark)
+     * @param slots      number of keystreams computed ahead
+     * @param slotLength length of each keystream, padding included
+     * @param executor   where keystreams are computed
+     * @return same ciphering, using precomputed keystreams when it can
+     * @see #precomputedKeystreamsHits()
+     */
+    public Cipher withPrecomputedKeystreams(final int slots, final int slotLength, final CipheringExecutor executor) {
+        if (!this.transformation.isCounterMode()) {
+            throw new UnsupportedOperationException(
+                format("Precomputed keystreams need a CTR transformation, not {0}", this.transformation));
+        }
+        return new Cipher(this.transformation, this.secretKey, this.keyRing, this.paddingGenerator, this.ivSource,
+                          this.compression,
+                          KeystreamRing.of(this.transformation, this.secretKey, this.ivSource, slots, slotLength,
+                                           executor));
+    }
+
+    /**
+     * @return number of contents ciphered with a precomputed keystream
+     */
+    public long precomputedKeystreamsHits() {
+        return isNull(this.keystreams) ? 0 : this.keystreams.hits();
+    }
+
+    /**
+     * @return number of contents short enough for a precomputed keystream, ciphered inline as none was ready
+     */
+    public long precomputedKeystreamsMisses() {
+        return isNull(this.keystreams) ? 0 : this.keystreams.misses();
+    }
+
+    private static CipheringTransformation notPadded(final CipheringTransformation transformation) {
         if(transformation.isPaddedAlgorithm()){
             throw new IllegalArgumentException(
                 format("Given transformation {0} require a padding. Use createPaddedCiphering factory method.",
                        transformation)
             );
         }
-        this.paddingGenerator = null;
+        return transformation;
     }
 
+    private static SecretKeySpec secretKeyOf(final CipheringConfig cipheringConfig) {
+        return new SecretKeySpec(cipheringConfig.cipheringKey().getBytes(),
+                                 cipheringConfig.cipheringTransformation().algorithm());
+    }
 
+    private static byte[][] paddingsOf(final IntFunction<String> paddingGenerator, final int keyLength) {
+        final byte[][] paddings = new byte[keyLength + 1][];
+        for (int length = 1; keyLength >= length; length++) {
+            paddings[length] = paddingGenerator.apply(length).getBytes(UTF_8);
+        }
+        return paddings;
+    }
 
-    public static Cipher createCiphering(final CipheringConfig cipheringConfig) {
-        return new Cipher(cipheringConfig.cipheringKey(),
-                          cipheringConfig.cipheringTransformation());
+    // GCM nonces must never repeat for a key : counter based ones are safer than random ones
+    private static IvSource defaultIvSourceFor(final CipheringTransformation transformation) {
+        return transformation.isAuthenticated()
+                   ? new CounterNonces(transformation.ivLength(), new SecureRandom())
+                   : PrefetchingIvSource.shared();
     }
 
-    public static Cipher createPaddedCiphering(final CipheringConfig cipheringConfig,
-                                               final IntFunction<String> paddingGenerator) {
-        return new Cipher(cipheringConfig.cipheringKey(),
-                          cipheringConfig.cipheringTransformation(),
-                          paddingGenerator);
+    private static IvSource ivSourceFor(final CipheringTransformation transformation, final CipheringConfig config) {
+        return transformation.isAuthenticated()
+                   ? defaultIvSourceFor(transformation)
+                   : config.ivSource().orElseGet(() -> defaultIvSourceFor(transformation));
     }
 
 
 
     public byte[] cipher(final String content) {
+        return cipher((CharSequence) content);
+    }
+
+    /**
+     * UTF-8 encoding is done into a buffer of the thread : the returned array is the only allocation
+     */
+    public byte[] cipher(final CharSequence content) {
+        final ByteBuffer encoded = Scratch.current().encoded(requireNonNull(content));
+        return cipher(encoded.array(), encoded.limit());
+    }
+
+    public byte[] cipher(final byte[] content) {
+        return cipher(requireNonNull(content), content.length);
+    }
+
+    /**
+     * ciphering of a content written piece by piece as it is produced : only its ciphered bytes are held, the plain
+     *  content never being whole in memory (unless compressed : compression needs it whole)
+     * @param content writes the whole content, once, to the given stream ; exceptions it throws are thrown as they are
+     * @return ciphered content, as {@link #cipher(byte[])} gives it, padding included
+     */
+    public byte[] cipherWritten(final ContentWriter content)
+    throws IOException {
         requireNonNull(content);
-        final var toCipher = (this.transformation.isPaddedAlgorithm())? addPaddingTo(content):content;
-        final byte[] cipheredContent = cipheringOperationResultFor(toCipher.getBytes(UTF_8), javax.crypto.Cipher.ENCRYPT_MODE,
-                                                                   (aText, cipher) -> cipher.doFinal(aText));
-        if(isIVRequired()){
-            return ArrayUtils.addAll(this.lastGeneratedIv, cipheredContent);
-        } else {
+        if (nonNull(this.compression)) {
+            final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            content.writeTo(plain);
+            return cipher(plain.toByteArray());
+        }
+        final Engine threadEngine = this.writtenEncryptors.get();
+        // written content ciphering another written content : a dedicated engine for the inner one
+        final Engine engine = threadEngine.busy ? newEngine() : threadEngine;
+        engine.busy = true;
+        boolean done = false;
+        try {
+            final byte[] iv = this.ivRequired ? generatedIv() : null;
+            final CipheredChunks ciphered = new CipheredChunks(
+                initialized(engine, javax.crypto.Cipher.ENCRYPT_MODE, this.secretKey, iv), headerOf(iv));
+            content.writeTo(ciphered);
+            final byte[] cipheredContent = ciphered.finished(paddingFor(ciphered.plainLength));
+            done = true;
             return cipheredContent;
         }
+        catch (final GeneralSecurityException e) {
+            throw new InternalError("Something gone wrong while ciphering", e);
+        }
+        finally {
+            engine.busy = false;
+            // left in the middle of a content : the thread will get a fresh one
+            if (!done && engine == threadEngine) this.writtenEncryptors.remove();
+        }
     }
 
-    private String addPaddingTo(final String content) {
-        return content + this.paddingGenerator.apply(neededPaddingFor(content));
+    private byte[] cipher(final byte[] content, final int length) {
+        if (nonNull(this.compression) && this.compression.appliesTo(length)) {
+            final ByteBuffer compressed = this.compression.compressed(content, length);
+            if (compressed.limit() < length) {
+                return cipher(compressed.array(), compressed.limit(), NO_PADDING, CipheringEnvelope.COMPRESSED);
+            }
+        }
+        return cipher(content, length, paddingFor(length), CipheringEnvelope.NO_FLAGS);
     }
 
+    private byte[] cipher(final byte[] content, final int length, final byte[] padding, final byte flags) {
+        final KeystreamRing.Keystream keystream = isNull(this.keystreams)
+                                                      ? null
+                                                      : this.keystreams.next(length + padding.length);
+        if (nonNull(keystream)) {
+            final byte[] header = headerOf(keystream.iv, flags);
+            final byte[] cipheredContent = new byte[header.length + length + padding.length];
+            System.arraycopy(header, 0, cipheredContent, 0, header.length);
+            keystream.xor(content, length, cipheredContent, header.length, 0);
+            keystream.xor(padding, padding.length, cipheredContent, header.length + length, length);
+            return cipheredContent;
+        }
+        return cipheringOperationResultFor(javax.crypto.Cipher.ENCRYPT_MODE, () -> {
+            final byte[] iv = this.ivRequired ? generatedIv() : null;
+            final byte[] cipheredContent = new byte[cipheredSizeFor(length + padding.length)];
+            final byte[] header = headerOf(iv, flags);
+            System.arraycopy(header, 0, cipheredContent, 0, header.length);
+            final javax.crypto.Cipher cipher = initialized(this.encryptors.get(), javax.crypto.Cipher.ENCRYPT_MODE,
+                                                           this.secretKey, iv);
+            final int updated = cipher.update(content, 0, length, cipheredContent, header.length);
+            cipher.doFinal(padding, 0, padding.length, cipheredContent, header.length + updated);
+            return cipheredContent;
+        });
+    }
 
     public String uncipher(final byte[] cipheredContent, final Function<? super String, String> finalizer) {
-        return finalizer.apply(new String(getUncipheredBytes(cipheredContent),UTF_8));
+        final ByteBuffer unciphered = unciphered(cipheredContent, true);
+        return finalizer.apply(new String(unciphered.array(), 0, unciphered.limit(), UTF_8));
     }
 
-    private byte[] getUncipheredBytes(final byte[] cipheredContent) {
-        return cipheringOperationResultFor(cipheredContent,
-                                           javax.crypto.Cipher.DECRYPT_MODE,
-                                           (aText, cipher) -> {
-                                               final byte[] content = textPartOfCipheredContent(aText, cipher);
-                                               return cipher.doFinal(content);
-                                            });
+    /**
+     * @return unciphered bytes, without the padding added while ciphering
+     *  trailing bytes of the content looking like the padding cannot be told apart from it, at most key length of them
+     */
+    public byte[] uncipher(final byte[] cipheredContent) {
+        final ByteBuffer unciphered = unciphered(cipheredContent, false);
+        return Arrays.copyOf(unciphered.array(), unciphered.limit());
     }
 
-    private byte[] textPartOfCipheredContent(final byte[] aText, final javax.crypto.Cipher cipher) {
-        return isIVRequired() ? bytesWithoutIV(aText, cipher) : aText;
+    /**
+     * @return unciphered chars, without the padding added while ciphering
+     * @see #uncipher(byte[])
+     */
+    public CharBuffer uncipherChars(final byte[] cipheredContent) {
+        return UTF_8.decode(unciphered(cipheredContent, false));
     }
 
-    private byte[] bytesWithoutIV(final byte[] aText, final javax.crypto.Cipher cipher) {
-        return Arrays.copyOfRange(aText, cipher.getBlockSize(), aText.length);
+    // in a buffer of the thread, uncompressed
+    private ByteBuffer unciphered(final byte[] cipheredContent, final boolean withPadding) {
+        requireNonNull(cipheredContent);
+        checkHeaderPresenceIn(cipheredContent.length);
+        final Header header = parsedHeader(Arrays.copyOfRange(cipheredContent, 0, this.headerLength), true);
+        final ByteBuffer unciphered = cipheringOperationResultFor(javax.crypto.Cipher.DECRYPT_MODE, () -> {
+            final javax.crypto.Cipher cipher = initialized(this.decryptors.get(), javax.crypto.Cipher.DECRYPT_MODE,
+                                                           header.key, header.iv);
+            final int inputLength = cipheredContent.length - this.headerLength;
+            final ByteBuffer buffer = Scratch.current().unciphered(cipher.getOutputSize(inputLength));
+            return buffer.limit(cipher.doFinal(cipheredContent, this.headerLength, inputLength,
+                                               buffer.array(), 0));
+        });
+        if (header.compressed) {
+            return (nonNull(this.compression) ? this.compression : CipheringCompression.WITHOUT_DICTIONARY)
+                       .uncompressed(unciphered.array(), unciphered.limit());
+        }
+        return withPadding ? unciphered : unciphered.limit(unpaddedLengthOf(unciphered));
     }
 
-    private byte[] extractIVbytes(final byte[] aText, final javax.crypto.Cipher cipher) {
-        return Arrays.copyOfRange(aText, 0, cipher.getBlockSize());
+    /**
+     * cipher on the shared ciphering executor, leaving the calling thread free
+     * @see CipheringExecutor#shared()
+     */
+    public CompletableFuture<byte[]> cipherAsync(final String content) {
+        return cipherAsync(content, CipheringExecutor.shared());
     }
 
-    private int neededPaddingFor(final String aText){
-        if(!this.transformation.isPaddedAlgorithm()) return 0;
-        final int keyLen = secretKey().getEncoded().length;
-        return keyLen-(aText.getBytes().length% keyLen);
+    /**
+     * @param executor where ciphering runs ; the future fails at once when too many tasks are pending on it
+     */
+    public CompletableFuture<byte[]> cipherAsync(final String content, final CipheringExecutor executor) {
+        requireNonNull(content);
+        return executor.supplyAsync(() -> cipher(content));
     }
 
+    /**
+     * cipher many contents at once, by batches spread over the common fork-join pool
+     *  each worker reuses its own initialized JCA cipher
+     * @return ciphered contents, in the order of given contents
+     */
+    public List<byte[]> cipherAll(final Collection<String> contents) {
+        return cipherAll(requireNonNull(contents).stream());
+    }
 
+    /**
+     * @see #cipherAll(Collection)
+     */
+    public List<byte[]> cipherAll(final Stream<String> contents) {
+        return requireNonNull(contents).parallel().map(this::cipher).collect(Collectors.toList());
+    }
 
-    private byte[] cipheringOperationResultFor(final byte[] content,
-                                                      final int cipherMode,
-                                                      final ThrowingBiFunction<byte[], ? super javax.crypto.Cipher,
-                                                                                  byte[], Exception> operation)
-    {
+    /**
+     * @param pool fork-join pool doing the work instead of the common one
+     * @see #cipherAll(Collection)
+     */
+    public List<byte[]> cipherAll(final Collection<String> contents, final ForkJoinPool pool) {
+        return pool.submit(() -> cipherAll(contents)).join();
+    }
+
+    /**
+     * uncipher many contents at once, by batches spread over the common fork-join pool
+     * @return unciphered contents, in the order of given ciphered contents
+     */
+    public List<String> uncipherAll(final Collection<byte[]> cipheredContents,
+                                    final Function<? super String, String> finalizer) {
+        return uncipherAll(requireNonNull(cipheredContents).stream(), finalizer);
+    }
+
+    /**
+     * @see #uncipherAll(Collection, Function)
+     */
+    public List<String> uncipherAll(final Stream<byte[]> cipheredContents,
+                                    final Function<? super String, String> finalizer) {
+        requireNonNull(finalizer);
+        return requireNonNull(cipheredContents).parallel()
+                                               .map(cipheredContent -> uncipher(cipheredContent, finalizer))
+                                               .collect(Collectors.toList());
+    }
+
+    /**
+     * @param pool fork-join pool doing the work instead of the common one
+     * @see #uncipherAll(Collection, Function)
+     */
+    public List<String> uncipherAll(final Collection<byte[]> cipheredContents,
+                                    final Function<? super String, String> finalizer, final ForkJoinPool pool) {
+        return pool.submit(() -> uncipherAll(cipheredContents, finalizer)).join();
+    }
+
+    /**
+     * streaming ciphering, memory use does not depend on the size of the content
+     *  IV or envelope is written first to destination ; no padding generator is used, only the one of the
+     *  transformation. Closing the returned stream ends the ciphering and closes destination.
+     * @param destination where ciphered content is written
+     * @return stream to write the content to cipher to
+     */
+    public OutputStream cipheringStream(final OutputStream destination)
+    throws IOException {
+        requireNonNull(destination);
+        final Session session = cipheringSession();
+        destination.write(session.header);
+        return new CipherOutputStream(destination, session.cipher);
+    }
+
+    /**
+     * streaming unciphering of a content ciphered by this ciphering
+     * @param source ciphered content, starting with IV or envelope
+     * @return stream of the unciphered content
+     */
+    public InputStream uncipheringStream(final InputStream source)
+    throws IOException {
+        requireNonNull(source);
+        final byte[] headerBytes = source.readNBytes(this.headerLength);
+        if(headerBytes.length != this.headerLength) {
+            throw new EOFException("Ciphered content is too short to contain its header");
+        }
+        return new CipherInputStream(source, uncipheringSession(headerBytes).cipher);
+    }
+
+    /**
+     * @see #cipheringStream(OutputStream)
+     */
+    public WritableByteChannel cipheringChannel(final WritableByteChannel destination)
+    throws IOException {
+        return Channels.newChannel(cipheringStream(Channels.newOutputStream(requireNonNull(destination))));
+    }
+
+    /**
+     * @see #uncipheringStream(InputStream)
+     */
+    public ReadableByteChannel uncipheringChannel(final ReadableByteChannel source)
+    throws IOException {
+        return Channels.newChannel(uncipheringStream(Channels.newInputStream(requireNonNull(source))));
+    }
+
+    /**
+     * @return a dedicated JCA cipher, initialized to cipher a new content, with the header to write before it
+     */
+    Session cipheringSession() {
+        final byte[] iv = this.ivRequired ? generatedIv() : null;
+        return new Session(headerOf(iv), this.secretKey, iv,
+                           initializedStreamEngine(javax.crypto.Cipher.ENCRYPT_MODE, this.secretKey, iv));
+    }
+
+    /**
+     * @param header header read before a ciphered content
+     * @return a dedicated JCA cipher, initialized to uncipher the content following given header
+     */
+    Session uncipheringSession(final byte[] header) {
+        final Header parsedHeader = parsedHeader(header);
+        return new Session(header, parsedHeader.key, parsedHeader.iv,
+                           initializedStreamEngine(javax.crypto.Cipher.DECRYPT_MODE, parsedHeader.key, parsedHeader.iv));
+    }
+
+    int headerLength() {
+        return this.headerLength;
+    }
+
+    IvSource ivSource() {
+        return this.ivSource;
+    }
+
+    /**
+     * drops JCA ciphers held by threads for this ciphering, which would otherwise stay in their thread locals until
+     * these threads end : for a ciphering no longer used, still usable, each use creating its own JCA cipher then
+     */
+    void release() {
+        this.encryptors.release();
+        this.decryptors.release();
+        this.writtenEncryptors.release();
+    }
+
+    /**
+     * @return number of JCA ciphers held by threads for this ciphering
+     */
+    int heldEngines() {
+        return this.encryptors.held() + this.decryptors.held() + this.writtenEncryptors.held();
+    }
+
+    CipheringTransformation cipheringTransformation() {
+        return this.transformation;
+    }
+
+    private javax.crypto.Cipher initializedStreamEngine(final int cipherMode, final SecretKeySpec key, final byte[] iv) {
         try {
-            final javax.crypto.Cipher cipher=this.transformation.newCipher();
-            if(javax.crypto.Cipher.DECRYPT_MODE == cipherMode && isIVRequired()){
-                this.lastExtractedIv = extractIVbytes(content,cipher);
+            return initialized(newEngine(), cipherMode, key, iv);
+        }
+        catch (final GeneralSecurityException e) {
+            throw new InternalError(format("Something gone wrong while preparing {0}ciphering", cipherModeWord(cipherMode)), e);
+        }
+    }
+
+    /**
+     * @param contentLength length of a content to cipher through {@link #cipher(ByteBuffer, ByteBuffer)}
+     * @return exact number of bytes it will take in destination buffer, IV or envelope included
+     */
+    public int cipheredSizeFor(final int contentLength) {
+        return this.headerLength + this.transformation.cipheredLengthFor(contentLength);
+    }
+
+    /**
+     * @param cipheredLength length of a ciphered content to uncipher through {@link #uncipher(ByteBuffer, ByteBuffer)}
+     * @return number of bytes destination buffer must have left, an upper bound when padding is used
+     */
+    public int uncipheredSizeFor(final int cipheredLength) {
+        return Math.max(0, cipheredLength - this.headerLength - this.transformation.tagLength());
+    }
+
+    /**
+     * cipher remaining bytes of src directly into dst : IV or envelope then ciphered content, with no intermediate array
+     *  works with heap or direct buffers ; no padding generator is used, only the one of the transformation
+     * @param src content to cipher, fully consumed
+     * @param dst destination, must have at least {@link #cipheredSizeFor(int)} bytes remaining
+     * @return number of bytes written to dst
+     */
+    public int cipher(final ByteBuffer src, final ByteBuffer dst) {
+        final int neededSize = cipheredSizeFor(requireNonNull(src).remaining());
+        checkRemainingOf(requireNonNull(dst), neededSize);
+        return cipheringOperationResultFor(javax.crypto.Cipher.ENCRYPT_MODE, () -> {
+            final byte[] iv = this.ivRequired ? generatedIv() : null;
+            dst.put(headerOf(iv));
+            return this.headerLength
+                   + initialized(this.encryptors.get(), javax.crypto.Cipher.ENCRYPT_MODE, this.secretKey, iv)
+                         .doFinal(src, dst);
+        });
+    }
+
+    /**
+     * uncipher remaining bytes of src directly into dst
+     * @param src ciphered content, IV or envelope first, fully consumed
+     * @param dst destination, must have at least {@link #uncipheredSizeFor(int)} bytes remaining
+     * @return number of bytes written to dst
+     */
+    public int uncipher(final ByteBuffer src, final ByteBuffer dst) {
+        checkHeaderPresenceIn(requireNonNull(src).remaining());
+        checkRemainingOf(requireNonNull(dst), uncipheredSizeFor(src.remaining()));
+        return cipheringOperationResultFor(javax.crypto.Cipher.DECRYPT_MODE, () -> {
+            final byte[] headerBytes = new byte[this.headerLength];
+            src.get(headerBytes);
+            final Header header = parsedHeader(headerBytes);
+            return initialized(this.decryptors.get(), javax.crypto.Cipher.DECRYPT_MODE, header.key, header.iv)
+                       .doFinal(src, dst);
+        });
+    }
+
+    /**
+     * CTR only : cipher a large content by segments ciphered in parallel on the common fork-join pool
+     *  each segment starts from the counter of its first block, so the result is the one of {@link #cipher(String)}
+     *  for the same IV
+     * @return ciphered content, IV or envelope first
+     */
+    public byte[] cipherInParallel(final byte[] content) {
+        final byte[] cipheredContent = new byte[cipheredSizeFor(requireNonNull(content).length)];
+        cipherInParallel(ByteBuffer.wrap(content), ByteBuffer.wrap(cipheredContent));
+        return cipheredContent;
+    }
+
+    /**
+     * @see #cipherInParallel(byte[])
+     * @see #cipher(ByteBuffer, ByteBuffer)
+     */
+    public int cipherInParallel(final ByteBuffer src, final ByteBuffer dst) {
+        checkCounterMode();
+        checkRemainingOf(requireNonNull(dst), cipheredSizeFor(requireNonNull(src).remaining()));
+        final byte[] iv = generatedIv();
+        dst.put(headerOf(iv));
+        return this.headerLength + inParallel(this.secretKey, iv, 0, src, dst);
+    }
+
+    /**
+     * CTR only : uncipher a large content by segments unciphered in parallel on the common fork-join pool
+     * @return unciphered content
+     */
+    public byte[] uncipherInParallel(final byte[] cipheredContent) {
+        final byte[] content = new byte[uncipheredSizeFor(requireNonNull(cipheredContent).length)];
+        uncipherInParallel(ByteBuffer.wrap(cipheredContent), ByteBuffer.wrap(content));
+        return content;
+    }
+
+    /**
+     * @see #uncipherInParallel(byte[])
+     * @see #uncipher(ByteBuffer, ByteBuffer)
+     */
+    public int uncipherInParallel(final ByteBuffer src, final ByteBuffer dst) {
+        checkCounterMode();
+        checkHeaderPresenceIn(requireNonNull(src).remaining());
+        checkRemainingOf(requireNonNull(dst), uncipheredSizeFor(src.remaining()));
+        final byte[] headerBytes = new byte[this.headerLength];
+        src.get(headerBytes);
+        final Header header = parsedHeader(headerBytes);
+        return inParallel(header.key, header.iv, 0, src, dst);
+    }
+
+    /**
+     * CTR ciphering and unciphering being the same operation, both run it
+     * @param firstBlock index of the block of src first byte in the whole content
+     * @return number of bytes written to dst, src being fully consumed
+     */
+    int inParallel(final SecretKeySpec key, final byte[] iv, final long firstBlock,
+                   final ByteBuffer src, final ByteBuffer dst) {
+        final int length = src.remaining();
+        final int segments = (length + PARALLEL_SEGMENT_LENGTH - 1) / PARALLEL_SEGMENT_LENGTH;
+        IntStream.range(0, segments).parallel().forEach(segment -> {
+            final int from = segment * PARALLEL_SEGMENT_LENGTH;
+            final int segmentLength = Math.min(PARALLEL_SEGMENT_LENGTH, length - from);
+            cipheringOperationResultFor(javax.crypto.Cipher.ENCRYPT_MODE, () -> {
+                final byte[] segmentIv = CtrCounters.ivAtBlock(iv, firstBlock + (from / this.transformation.blockSize()));
+                return initialized(this.encryptors.get(), javax.crypto.Cipher.ENCRYPT_MODE, key, segmentIv)
+                           .doFinal(CtrCounters.slice(src, src.position() + from, segmentLength),
+                                    CtrCounters.slice(dst, dst.position() + from, segmentLength));
+            });
+        });
+        src.position(src.position() + length);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * CTR only : uncipher a slice of a content without unciphering what precedes it
+     *  counter is moved to the block of offset, cost depends on length only
+     * @param cipheredContent ciphered content, IV or envelope first
+     * @param offset          position of the slice in the unciphered content
+     * @param length          length of the slice
+     * @return unciphered slice
+     * @throws IndexOutOfBoundsException when the slice is not within the unciphered content
+     */
+    public byte[] uncipherRange(final byte[] cipheredContent, final int offset, final int length) {
+        checkCounterMode();
+        checkHeaderPresenceIn(requireNonNull(cipheredContent).length);
+        // checked before allocating the slice : a negative length is out of bounds too
+        Objects.checkFromIndexSize(offset, length, cipheredContent.length - this.headerLength);
+        final byte[] slice = new byte[length];
+        uncipherRange(ByteBuffer.wrap(cipheredContent), offset, ByteBuffer.wrap(slice));
+        return slice;
+    }
+
+    /**
+     * @param cipheredContent ciphered content from its position, IV or envelope first ; position is left unchanged
+     * @param dst             destination of the slice, its remaining bytes giving the length of the slice
+     * @see #uncipherRange(byte[], int, int)
+     */
+    public void uncipherRange(final ByteBuffer cipheredContent, final int offset, final ByteBuffer dst) {
+        checkCounterMode();
+        final ByteBuffer src = requireNonNull(cipheredContent).duplicate();
+        final int length = requireNonNull(dst).remaining();
+        checkHeaderPresenceIn(src.remaining());
+        Objects.checkFromIndexSize(offset, length, src.remaining() - this.headerLength);
+        final byte[] headerBytes = new byte[this.headerLength];
+        src.get(headerBytes);
+        final Header header = parsedHeader(headerBytes);
+        final int blockSize = this.transformation.blockSize();
+        final int skipped = offset % blockSize;
+        cipheringOperationResultFor(javax.crypto.Cipher.DECRYPT_MODE, () -> {
+            final javax.crypto.Cipher cipher =
+                initialized(this.decryptors.get(), javax.crypto.Cipher.DECRYPT_MODE, header.key,
+                            CtrCounters.ivAtBlock(header.iv, offset / blockSize));
+            src.position(src.position() + offset - skipped);
+            // moves keystream to offset within its block
+            cipher.update(CtrCounters.slice(src, src.position(), skipped), ByteBuffer.allocate(skipped));
+            return cipher.doFinal(CtrCounters.slice(src, src.position() + skipped, length), dst);
+        });
+    }
+
+    private void checkCounterMode() {
+        if (!this.transformation.isCounterMode()) {
+            throw new UnsupportedOperationException(
+                format("Parallel ciphering needs a CTR transformation, not {0}", this.transformation));
+        }
+    }
+
+    private static void checkRemainingOf(final ByteBuffer dst, final int neededSize) {
+        if (neededSize > dst.remaining()) {
+            throw new IllegalArgumentException(
+                format("Destination buffer is too small : {0} bytes remaining, {1} needed", dst.remaining(), neededSize)
+            );
+        }
+    }
+
+    private void checkHeaderPresenceIn(final int cipheredLength) {
+        if (this.headerLength > cipheredLength) {
+            throw new IllegalArgumentException("Ciphered content is too short to contain its header");
+        }
+    }
+
+    private byte[] headerOf(final byte[] iv) {
+        return headerOf(iv, CipheringEnvelope.NO_FLAGS);
+    }
+
+    private byte[] headerOf(final byte[] iv, final byte flags) {
+        if (nonNull(this.keyRing)) {
+            return CipheringEnvelope.headerOf(this.transformation, this.keyRing.currentKeyId(), flags, iv);
+        }
+        return isNull(iv) ? NO_HEADER : iv;
+    }
+
+    private Header parsedHeader(final byte[] header) {
+        return parsedHeader(header, false);
+    }
+
+    /**
+     * @param wholeContent true when the content is unciphered at once, so it may be compressed
+     */
+    private Header parsedHeader(final byte[] header, final boolean wholeContent) {
+        if (isNull(this.keyRing)) {
+            return new Header(this.secretKey, this.ivRequired ? header : null, false);
+        }
+        CipheringEnvelope.check(header, this.transformation);
+        final boolean compressed = CipheringEnvelope.isCompressed(header);
+        if (compressed && !wholeContent) {
+            throw new UnreadableCipheredContent("Compressed content can only be unciphered as a whole");
+        }
+        return new Header(this.keyRing.keyOf(CipheringEnvelope.keyIdOf(header)), CipheringEnvelope.ivOf(header),
+                          compressed);
+    }
+
+    private byte[] paddingFor(final int contentLength) {
+        return isNull(this.paddings) ? NO_PADDING : this.paddings[this.keyLength - (contentLength % this.keyLength)];
+    }
+
+    // the longest padding ending the content
+    private int unpaddedLengthOf(final ByteBuffer unciphered) {
+        if (isNull(this.paddings)) return unciphered.limit();
+        for (int length = this.keyLength; 0 < length; length--) {
+            final byte[] padding = this.paddings[length];
+            final int paddingStart = unciphered.limit() - padding.length;
+            if (0 <= paddingStart
+                && 0 == Arrays.compare(unciphered.array(), paddingStart, unciphered.limit(), padding, 0, padding.length)) {
+                return paddingStart;
             }
-            initializedCipher(cipher,cipherMode);
-            return operation.apply(content, cipher);
+        }
+        return unciphered.limit();
+    }
+
+
+
+    private <T> T cipheringOperationResultFor(final int cipherMode,
+                                              final ThrowingSupplier<T, Exception> operation)
+    {
+        try {
+            return operation.get();
+        }
+        catch (final UnreadableCipheredContent e) {
+            throw e;
+        }
+        catch (final AEADBadTagException e) {
+            engines(cipherMode).remove();
+            throw new TamperedCipheredContent(e);
         }
         catch (final Exception e) {
-            final String cipherModeWord = (javax.crypto.Cipher.ENCRYPT_MODE == cipherMode) ? "" : "un";
-            throw new InternalError(format("Something gone wrong while {0}ciphering", cipherModeWord), e);
+            // a failed JCA cipher may be left in an unknown state : the thread will get a fresh one
+            engines(cipherMode).remove();
+            throw new InternalError(format("Something gone wrong while {0}ciphering", cipherModeWord(cipherMode)), e);
         }
     }
 
+    private static String cipherModeWord(final int cipherMode) {
+        return (javax.crypto.Cipher.ENCRYPT_MODE == cipherMode) ? "" : "un";
+    }
 
-    private void initializedCipher(final javax.crypto.Cipher cipher, final int cipherMode)
-        throws InvalidKeyException, InvalidAlgorithmParameterException, NoSuchAlgorithmException
-    {
-        final AlgorithmParameterSpec params = paramSpec(cipher, cipherMode);
-        if(Objects.nonNull(params)) {
-            cipher.init(cipherMode, secretKey(), params);
-        }else {
-          cipher.init(cipherMode, secretKey());
+    private Engines engines(final int cipherMode) {
+        return (javax.crypto.Cipher.ENCRYPT_MODE == cipherMode) ? this.encryptors : this.decryptors;
+    }
+
+    private Engine newEngine() {
+        try {
+            return new Engine(this.transformation.newCipher());
+        }
+        catch (final GeneralSecurityException e) {
+            throw new InternalError("Something gone wrong while preparing ciphering", e);
         }
     }
 
-    private AlgorithmParameterSpec paramSpec(final javax.crypto.Cipher cipher, final int cipherMode)
-        throws NoSuchAlgorithmException
+    private javax.crypto.Cipher initialized(final Engine engine, final int cipherMode, final SecretKeySpec key,
+                                            final byte[] iv)
+        throws GeneralSecurityException
     {
-        AlgorithmParameterSpec params=null;
-        if(isIVRequired()){
-          byte[] iv=null;
-          if(javax.crypto.Cipher.ENCRYPT_MODE == cipherMode) {
-              iv = new byte[cipher.getBlockSize()];
-              SecureRandom.getInstance(SECURE_RANDOM_ALGORITHM).nextBytes(iv);
-              this.lastGeneratedIv = iv;
-          }
-          if(javax.crypto.Cipher.DECRYPT_MODE == cipherMode) {
-              iv= this.lastExtractedIv;
-          }
-          assert null != iv;
-          params = new IvParameterSpec(iv);
+        if(nonNull(iv)) {
+            engine.cipher.init(cipherMode, key, this.transformation.parameterSpecOf(iv));
+            engine.initializedKey = key;
+        } else if (engine.initializedKey != key) {
+            // no IV : initialized once per key, doFinal resetting it to this state
+            engine.cipher.init(cipherMode, key);
+            engine.initializedKey = key;
+        }
+        return engine.cipher;
+    }
+
+    private byte[] generatedIv() {
+        return this.ivSource.nextIv(this.ivLength);
+    }
+
+
+
+    /**
+     * buffers of a thread, reused from a content to the next while they stay reasonably small
+     */
+    private static final class Scratch {
+        private static final int MAX_RETAINED_LENGTH = 1 << 20;
+        private static final ThreadLocal<Scratch> SCRATCHES = ThreadLocal.withInitial(Scratch::new);
+
+        private final CharsetEncoder encoder = UTF_8.newEncoder()
+                                                    .onMalformedInput(CodingErrorAction.REPLACE)
+                                                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer encoded = ByteBuffer.allocate(1024);
+        private ByteBuffer unciphered = ByteBuffer.allocate(1024);
+
+        private static Scratch current() {
+            return SCRATCHES.get();
+        }
+
+        private ByteBuffer encoded(final CharSequence content) {
+            final int maxLength = (int) Math.min(Integer.MAX_VALUE - 8L,
+                                                 (long) content.length() * (long) this.encoder.maxBytesPerChar());
+            final ByteBuffer buffer = reusable(this.encoded, maxLength);
+            this.encoded = retained(buffer, this.encoded);
+            this.encoder.reset();
+            final CharBuffer chars = CharBuffer.wrap(content);
+            this.encoder.encode(chars, buffer, true);
+            this.encoder.flush(buffer);
+            return buffer.flip();
+        }
+
+        private ByteBuffer unciphered(final int maxLength) {
+            final ByteBuffer buffer = reusable(this.unciphered, maxLength);
+            this.unciphered = retained(buffer, this.unciphered);
+            return buffer;
+        }
+
+        private static ByteBuffer retained(final ByteBuffer buffer, final ByteBuffer previous) {
+            return (MAX_RETAINED_LENGTH >= buffer.capacity()) ? buffer : previous;
+        }
+
+        private static ByteBuffer reusable(final ByteBuffer buffer, final int length) {
+            return (buffer.capacity() >= length) ? buffer.clear() : ByteBuffer.allocate(length);
+        }
+    }
+
+    /**
+     * a JCA cipher and the key it was last initialized with
+     */
+    private static final class Engine {
+        private final javax.crypto.Cipher cipher;
+        private SecretKeySpec initializedKey;
+        // ciphering a written content
+        private boolean busy;
+
+        private Engine(final javax.crypto.Cipher cipher) {
+            this.cipher = cipher;
         }
-        return params;
     }
 
-    private boolean isIVRequired() {
-        return "CTR".equals(this.transformation.mode());
+    /**
+     * an engine by thread, all of them being dropped at once on release
+     *  holders of the engines of threads are weakly tracked : a holder is collected with the thread owning it
+     */
+    private static final class Engines {
+        private final Supplier<Engine> factory;
+        private final ThreadLocal<Holder> holders = ThreadLocal.withInitial(this::registeredHolder);
+        private final Set<Reference<Holder>> registered = ConcurrentHashMap.newKeySet();
+        // references to holders of ended threads
+        private final ReferenceQueue<Holder> collected = new ReferenceQueue<>();
+        private volatile boolean released;
+
+        private Engines(final Supplier<Engine> factory) {
+            this.factory = factory;
+        }
+
+        private Engine get() {
+            final Holder holder = this.holders.get();
+            final Engine held = holder.engine;
+            if (nonNull(held)) {
+                return held;
+            }
+            final Engine engine = this.factory.get();
+            if (!this.released) {
+                holder.engine = engine;
+                // released meanwhile : release may not have seen it
+                if (this.released) holder.engine = null;
+            }
+            return engine;
+        }
+
+        private void remove() {
+            this.holders.get().engine = null;
+        }
+
+        private void release() {
+            this.released = true;
+            this.registered.forEach(reference -> {
+                final Holder holder = reference.get();
+                if (nonNull(holder)) holder.engine = null;
+            });
+            this.registered.clear();
+        }
+
+        private int held() {
+            purge();
+            return (int) this.registered.stream()
+                                        .map(Reference::get)
+                                        .filter(holder -> nonNull(holder) && nonNull(holder.engine))
+                                        .count();
+        }
+
+        private Holder registeredHolder() {
+            purge();
+            final Holder holder = new Holder();
+            if (!this.released) this.registered.add(new WeakReference<>(holder, this.collected));
+            return holder;
+        }
+
+        private void purge() {
+            for (Reference<? extends Holder> reference = this.collected.poll(); nonNull(reference);
+                 reference = this.collected.poll()) {
+                this.registered.remove(reference);
+            }
+        }
+
+        /**
+         * engine of a thread, dropped by release from any thread
+         */
+        private static final class Holder {
+            private volatile Engine engine;
+        }
     }
 
-    private SecretKeySpec secretKey() {
-        return new SecretKeySpec(this.key.getBytes(), this.transformation.algorithm());
+    /**
+     * what package tools need to work on a content piece by piece : its header, key, IV and own JCA cipher
+     */
+    static final class Session {
+        final byte[] header;
+        final SecretKeySpec key;
+        final byte[] iv;
+        final javax.crypto.Cipher cipher;
+
+        private Session(final byte[] header, final SecretKeySpec key, final byte[] iv,
+                        final javax.crypto.Cipher cipher) {
+            this.header = header;
+            this.key = key;
+            this.iv = iv;
+            this.cipher = cipher;
+        }
     }
 
+    /**
+     * key, IV and compression of a ciphered content
+     */
+    private static final class Header {
+        private final SecretKeySpec key;
+        private final byte[] iv;
+        private final boolean compressed;
 
+        private Header(final SecretKeySpec key, final byte[] iv, final boolean compressed) {
+            this.key = key;
+            this.iv = iv;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * authentication tag of a ciphered content did not match : content or IV was altered, or key is not the right one
+     */
+    public static final class TamperedCipheredContent extends RuntimeException {
+
+        TamperedCipheredContent(final Throwable cause) {
+            super("Ciphered content failed authentication", cause);
+        }
+    }
+
+    /**
+     * envelope of a ciphered content cannot be read by this ciphering : unknown version, transformation or key
+     */
+    public static final class UnreadableCipheredContent extends RuntimeException {
+
+        UnreadableCipheredContent(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * writer of a content to cipher
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream destination) throws IOException;
+    }
+
+    /**
+     * ciphered bytes of a content written piece by piece, in chunks growing up to {@link #MAX_CHUNK_LENGTH},
+     *  joined once the content is finished
+     */
+    private static final class CipheredChunks extends OutputStream {
+        private static final int MAX_CHUNK_LENGTH = 1 << 20;
+
+        private final javax.crypto.Cipher cipher;
+        private final List<byte[]> fullChunks = new ArrayList<>();
+        private byte[] chunk = new byte[1024];
+        private int position;
+        private int plainLength;
+
+        private CipheredChunks(final javax.crypto.Cipher cipher, final byte[] header) {
+            this.cipher = cipher;
+            writeCiphered(header, 0, header.length);
+        }
+
+        @Override
+        public void write(final int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            this.plainLength = Math.addExact(this.plainLength, len);
+            final int maxLength = this.cipher.getOutputSize(len);
+            if (this.chunk.length - this.position < maxLength) nextChunk(maxLength);
+            try {
+                this.position += this.cipher.update(b, off, len, this.chunk, this.position);
+            }
+            catch (final ShortBufferException e) {
+                throw new InternalError("Chunk was sized by the cipher itself", e);
+            }
+        }
+
+        private byte[] finished(final byte[] padding)
+        throws GeneralSecurityException {
+            write(padding, 0, padding.length);
+            final int maxLength = this.cipher.getOutputSize(0);
+            if (this.chunk.length - this.position < maxLength) nextChunk(maxLength);
+            this.position += this.cipher.doFinal(this.chunk, this.position);
+            if (this.fullChunks.isEmpty() && this.chunk.length == this.position) {
+                return this.chunk;
+            }
+            final int length = this.fullChunks.stream().mapToInt(full -> full.length).sum() + this.position;
+            final byte[] joined = new byte[length];
+            int joinedLength = 0;
+            for (final byte[] full : this.fullChunks) {
+                System.arraycopy(full, 0, joined, joinedLength, full.length);
+                joinedLength += full.length;
+            }
+            System.arraycopy(this.chunk, 0, joined, joinedLength, this.position);
+            return joined;
+        }
+
+        private void writeCiphered(final byte[] bytes, final int off, final int len) {
+            if (this.chunk.length - this.position < len) nextChunk(len);
+            System.arraycopy(bytes, off, this.chunk, this.position, len);
+            this.position += len;
+        }
+
+        private void nextChunk(final int minLength) {
+            if (0 < this.position) {
+                this.fullChunks.add((this.chunk.length == this.position)
+                                        ? this.chunk
+                                        : Arrays.copyOf(this.chunk, this.position));
+            }
+            this.chunk = new byte[Math.max(minLength, Math.min(2 * this.chunk.length, MAX_CHUNK_LENGTH))];
+            this.position = 0;
+        }
+    }
 
     @FunctionalInterface
-    private interface ThrowingBiFunction<T, U, V, E extends Exception> {
-        V apply(T p1, U p2) throws E;
+    private interface ThrowingSupplier<T, E extends Exception> {
+        T get() throws E;
     }
 
 
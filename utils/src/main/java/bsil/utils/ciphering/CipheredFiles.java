@@ -0,0 +1,206 @@
+package bsil.utils.ciphering;
+
+import javax.crypto.AEADBadTagException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.text.MessageFormat.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * ciphering of whole files, processed window by window : files may be larger than the heap
+ *  windows are read into direct buffers allocated once by file and reused : files are not memory mapped, mapped
+ *  buffers holding address space and file handles until they are collected (and files undeletable on Windows)
+ *  CTR windows are ciphered by segments in parallel, other transformations sequentially
+ *  ciphered files are the same as the output of Cipher streams : header first, no padding generator
+ *  authenticated transformations (GCM) keep the whole content in memory to uncipher it : not for huge files
+ */
+public final class CipheredFiles {
+
+    public static final int DEFAULT_WINDOW_LENGTH = 64 << 20;
+
+    private final Cipher ciphering;
+    private final int windowLength;
+
+    private CipheredFiles(final Cipher ciphering, final int windowLength) {
+        this.ciphering = requireNonNull(ciphering);
+        final int blockSize = Math.max(1, ciphering.cipheringTransformation().blockSize());
+        if (0 >= windowLength || 0 != windowLength % blockSize) {
+            throw new IllegalArgumentException(format("Window length must be a positive multiple of {0}", blockSize));
+        }
+        this.windowLength = windowLength;
+    }
+
+    public static CipheredFiles of(final Cipher ciphering) {
+        return new CipheredFiles(ciphering, DEFAULT_WINDOW_LENGTH);
+    }
+
+    /**
+     * @param windowLength length of file parts read at once, a multiple of the block size of the transformation
+     *                     two buffers of this length are allocated off heap while a file is processed
+     */
+    public CipheredFiles withWindowLength(final int windowLength) {
+        return new CipheredFiles(this.ciphering, windowLength);
+    }
+
+    /**
+     * @param source      file to cipher
+     * @param destination ciphered file, created or replaced
+     */
+    public Throughput cipher(final Path source, final Path destination)
+    throws IOException {
+        final long start = System.nanoTime();
+        try (final FileChannel in = FileChannel.open(source, READ);
+             final FileChannel out = FileChannel.open(destination, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            final Cipher.Session session = this.ciphering.cipheringSession();
+            final long headerLength = writeFully(out, ByteBuffer.wrap(session.header), 0);
+            final long written = headerLength + process(session, in, 0, out, headerLength);
+            return new Throughput(in.size(), written, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param source      file ciphered by the same ciphering
+     * @param destination unciphered file, created or replaced
+     */
+    public Throughput uncipher(final Path source, final Path destination)
+    throws IOException {
+        final long start = System.nanoTime();
+        try (final FileChannel in = FileChannel.open(source, READ);
+             final FileChannel out = FileChannel.open(destination, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(this.ciphering.headerLength());
+            while (header.hasRemaining()) {
+                if (0 > in.read(header, header.position())) {
+                    throw new EOFException("Ciphered file is too short to contain its header");
+                }
+            }
+            final Cipher.Session session = this.ciphering.uncipheringSession(header.array());
+            final long written = process(session, in, header.capacity(), out, 0);
+            return new Throughput(in.size(), written, System.nanoTime() - start);
+        }
+    }
+
+    private long process(final Cipher.Session session, final FileChannel in, final long inStart,
+                         final FileChannel out, final long outStart)
+    throws IOException {
+        return this.ciphering.cipheringTransformation().isCounterMode()
+                   ? inParallel(session, in, inStart, out, outStart)
+                   : sequentially(session, in, inStart, out, outStart);
+    }
+
+    // CTR : output of a window has its length
+    private long inParallel(final Cipher.Session session, final FileChannel in, final long inStart,
+                            final FileChannel out, final long outStart)
+    throws IOException {
+        final long length = in.size() - inStart;
+        final int blockSize = this.ciphering.cipheringTransformation().blockSize();
+        final ByteBuffer input = ByteBuffer.allocateDirect((int) Math.min(this.windowLength, length));
+        final ByteBuffer output = ByteBuffer.allocateDirect(input.capacity());
+        for (long done = 0; length > done; done += input.capacity()) {
+            readFully(in, input.clear(), inStart + done);
+            this.ciphering.inParallel(session.key, session.iv, done / blockSize, input.flip(), output.clear());
+            writeFully(out, output.flip(), outStart + done);
+        }
+        return length;
+    }
+
+    private long sequentially(final Cipher.Session session, final FileChannel in, final long inStart,
+                              final FileChannel out, final long outStart)
+    throws IOException {
+        final long length = in.size() - inStart;
+        final ByteBuffer input = ByteBuffer.allocateDirect((int) Math.min(this.windowLength, length));
+        // may grow by the block held back by padded unciphering, or by the content held back by GCM unciphering
+        ByteBuffer output = ByteBuffer.allocateDirect(session.cipher.getOutputSize(input.capacity()));
+        long position = outStart;
+        try {
+            for (long done = 0; length > done; done += input.capacity()) {
+                readFully(in, input.clear(), inStart + done);
+                if (session.cipher.getOutputSize(input.flip().remaining()) > output.capacity()) {
+                    output = ByteBuffer.allocateDirect(session.cipher.getOutputSize(input.remaining()));
+                }
+                session.cipher.update(input, output.clear());
+                position += writeFully(out, output.flip(), position);
+            }
+            if (session.cipher.getOutputSize(0) > output.capacity()) {
+                output = ByteBuffer.allocate(session.cipher.getOutputSize(0));
+            }
+            session.cipher.doFinal(ByteBuffer.allocate(0), output.clear());
+            position += writeFully(out, output.flip(), position);
+        }
+        catch (final AEADBadTagException e) {
+            throw new Cipher.TamperedCipheredContent(e);
+        }
+        catch (final GeneralSecurityException e) {
+            throw new InternalError("Something gone wrong while processing file", e);
+        }
+        return position - outStart;
+    }
+
+    // up to the limit of buffer, or to the end of file
+    private static void readFully(final FileChannel in, final ByteBuffer buffer, final long position)
+    throws IOException {
+        for (long read = 0; buffer.hasRemaining(); ) {
+            final int count = in.read(buffer, position + read);
+            if (0 > count) {
+                return;
+            }
+            read += count;
+        }
+    }
+
+    private static long writeFully(final FileChannel out, final ByteBuffer buffer, final long position)
+    throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += out.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * what was processed, and how fast
+     */
+    public static final class Throughput {
+        private final long readBytes;
+        private final long writtenBytes;
+        private final long elapsedNanos;
+
+        private Throughput(final long readBytes, final long writtenBytes, final long elapsedNanos) {
+            this.readBytes = readBytes;
+            this.writtenBytes = writtenBytes;
+            this.elapsedNanos = Math.max(1, elapsedNanos);
+        }
+
+        public long readBytes() {
+            return this.readBytes;
+        }
+
+        public long writtenBytes() {
+            return this.writtenBytes;
+        }
+
+        public Duration elapsed() {
+            return Duration.ofNanos(this.elapsedNanos);
+        }
+
+        public double megabytesPerSecond() {
+            return (this.readBytes / 1_000_000d) / (this.elapsedNanos / 1_000_000_000d);
+        }
+
+        @Override
+        public String toString() {
+            return format("{0} bytes read, {1} written in {2} ms ({3,number,#.##} MB/s)",
+                          this.readBytes, this.writtenBytes, elapsed().toMillis(), megabytesPerSecond());
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+package bsil.utils.ciphering;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * deflate compression of contents before ciphering them (see {@link Cipher#withCompression(CipheringCompression)})
+ *  contents shorter than the threshold, or not getting shorter, are ciphered as they are
+ *  a preset dictionary helps small and repetitive contents : zlib streams record its id (adler-32 of it),
+ *  so contents compressed with a previous dictionary stay readable while it is known
+ */
+public final class CipheringCompression {
+
+    public static final int DEFAULT_THRESHOLD = 256;
+    // deflate window : dictionary bytes beyond are never referenced
+    public static final int MAX_DICTIONARY_LENGTH = 32 * 1024;
+    // inflated contents longer than that are refused : a few kilobytes may inflate to gigabytes
+    public static final int DEFAULT_MAX_INFLATED_LENGTH = 64 << 20;
+    // for compressed contents read by a ciphering not set up to compress
+    static final CipheringCompression WITHOUT_DICTIONARY = ofThreshold(DEFAULT_THRESHOLD);
+
+    // where samples are cut into dictionary entries : after json separators
+    private static final Pattern SAMPLE_TOKENS_SEPARATOR = Pattern.compile("(?<=[,:{}\\[\\]])");
+    private static final int MAX_RETAINED_LENGTH = 1 << 20;
+
+    private final int threshold;
+    private final int level;
+    private final int maxInflatedLength;
+    // null when compressing without dictionary
+    private final byte[] dictionary;
+    // by adler-32 id, to read contents compressed with any of them
+    private final Map<Integer, byte[]> knownDictionaries;
+    // Deflater and Inflater hold native memory : one per thread, reset between contents
+    private final ThreadLocal<Codec> codecs;
+
+    private CipheringCompression(final int threshold, final int level, final int maxInflatedLength,
+                                 final byte[] dictionary, final Map<Integer, byte[]> knownDictionaries) {
+        if (0 > threshold) {
+            throw new IllegalArgumentException(format("Compression threshold must be positive, not {0}", threshold));
+        }
+        if ((Deflater.BEST_SPEED > level || Deflater.BEST_COMPRESSION < level)
+            && Deflater.DEFAULT_COMPRESSION != level) {
+            throw new IllegalArgumentException(format("Unknown compression level {0}", level));
+        }
+        if (0 >= maxInflatedLength) {
+            throw new IllegalArgumentException(format("Max inflated length must be positive, not {0}",
+                                                      maxInflatedLength));
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.maxInflatedLength = maxInflatedLength;
+        this.dictionary = dictionary;
+        this.knownDictionaries = Map.copyOf(knownDictionaries);
+        this.codecs = ThreadLocal.withInitial(Codec::new);
+    }
+
+    /**
+     * @param threshold length from which contents are compressed
+     */
+    public static CipheringCompression ofThreshold(final int threshold) {
+        return new CipheringCompression(threshold, Deflater.DEFAULT_COMPRESSION, DEFAULT_MAX_INFLATED_LENGTH, null,
+                                        Map.of());
+    }
+
+    public CipheringCompression withLevel(final int level) {
+        return new CipheringCompression(this.threshold, level, this.maxInflatedLength, this.dictionary,
+                                        this.knownDictionaries);
+    }
+
+    /**
+     * @param maxInflatedLength length contents may inflate to at most, longer ones being unreadable
+     */
+    public CipheringCompression withMaxInflatedLength(final int maxInflatedLength) {
+        return new CipheringCompression(this.threshold, this.level, maxInflatedLength, this.dictionary,
+                                        this.knownDictionaries);
+    }
+
+    /**
+     * @param dictionary preset dictionary to compress next contents with, kept known to read them later ; next
+     *                   contents are compressed without dictionary when it is empty (nothing could be trained)
+     * @see #trainedDictionary(Collection, int)
+     */
+    public CipheringCompression withDictionary(final byte[] dictionary) {
+        if (0 == requireNonNull(dictionary).length) {
+            return new CipheringCompression(this.threshold, this.level, this.maxInflatedLength, null,
+                                            this.knownDictionaries);
+        }
+        final byte[] copy = checkedDictionary(dictionary);
+        return new CipheringCompression(this.threshold, this.level, this.maxInflatedLength, copy, withKnown(copy));
+    }
+
+    /**
+     * @param dictionary a previous dictionary, only to read contents compressed with it
+     */
+    public CipheringCompression withKnownDictionary(final byte[] dictionary) {
+        return new CipheringCompression(this.threshold, this.level, this.maxInflatedLength, this.dictionary,
+                                        withKnown(checkedDictionary(dictionary)));
+    }
+
+    /**
+     * dictionary made of the parts samples repeat the most, most valuable last as deflate prefers near references
+     * @param samples   contents like the ones to compress
+     * @param maxLength length of the dictionary at most, up to {@link #MAX_DICTIONARY_LENGTH}
+     * @return dictionary, empty when samples repeat nothing
+     */
+    public static byte[] trainedDictionary(final Collection<String> samples, final int maxLength) {
+        final int length = Math.min(maxLength, MAX_DICTIONARY_LENGTH);
+        final Map<String, Long> counts = requireNonNull(samples).stream()
+                                                                 .flatMap(SAMPLE_TOKENS_SEPARATOR::splitAsStream)
+                                                                 .collect(Collectors.groupingBy(Function.identity(),
+                                                                                                Collectors.counting()));
+        final Comparator<Map.Entry<String, Long>> byValue = Comparator.comparingLong(
+            entry -> entry.getValue() * entry.getKey().length());
+        final StringBuilder dictionary = new StringBuilder(length);
+        counts.entrySet()
+              .stream()
+              .filter(entry -> 1 < entry.getValue())
+              .sorted(byValue.reversed())
+              .map(Map.Entry::getKey)
+              .filter(token -> token.getBytes(UTF_8).length <= length)
+              .takeWhile(token -> dictionary.length() + token.length() <= length)
+              .forEach(token -> dictionary.insert(0, token));
+        final byte[] bytes = dictionary.toString().getBytes(UTF_8);
+        // multi-bytes chars may exceed : beginning is the least valuable part
+        return Arrays.copyOfRange(bytes, Math.max(0, bytes.length - length), bytes.length);
+    }
+
+    boolean appliesTo(final int contentLength) {
+        return this.threshold <= contentLength;
+    }
+
+    /**
+     * @return compressed content, in a buffer of the thread
+     */
+    ByteBuffer compressed(final byte[] content, final int length) {
+        final Codec codec = this.codecs.get();
+        final Deflater deflater = codec.deflater;
+        deflater.reset();
+        deflater.setLevel(this.level);
+        if (nonNull(this.dictionary)) deflater.setDictionary(this.dictionary);
+        deflater.setInput(content, 0, length);
+        deflater.finish();
+        ByteBuffer output = codec.output(length + (length >> 12) + (length >> 14) + 64);
+        while (!deflater.finished()) {
+            if (!output.hasRemaining()) output = codec.grown(output);
+            output.position(output.position() + deflater.deflate(output.array(), output.position(),
+                                                                 output.remaining()));
+        }
+        return output.flip();
+    }
+
+    /**
+     * @return uncompressed content, in a buffer of the thread
+     * @throws Cipher.UnreadableCipheredContent when content was compressed with an unknown dictionary, is corrupted,
+     *  or inflates beyond the max inflated length
+     */
+    ByteBuffer uncompressed(final byte[] content, final int length) {
+        final Codec codec = this.codecs.get();
+        final Inflater inflater = codec.inflater;
+        inflater.reset();
+        inflater.setInput(content, 0, length);
+        ByteBuffer output = codec.output((int) Math.min(4L * length + 64,
+                                                        Math.min(MAX_RETAINED_LENGTH, this.maxInflatedLength)));
+        try {
+            while (!inflater.finished()) {
+                if (!output.hasRemaining()) output = grownInflated(codec, output);
+                final int inflated = inflater.inflate(output.array(), output.position(), output.remaining());
+                output.position(output.position() + inflated);
+                if (0 == inflated && inflater.needsDictionary()) {
+                    inflater.setDictionary(knownDictionaryOf(inflater.getAdler()));
+                }
+                else if (0 == inflated && inflater.needsInput()) {
+                    throw new Cipher.UnreadableCipheredContent("Compressed content is truncated");
+                }
+            }
+        }
+        catch (final DataFormatException e) {
+            throw new Cipher.UnreadableCipheredContent(format("Compressed content is corrupted : {0}", e.getMessage()));
+        }
+        return output.flip();
+    }
+
+    private ByteBuffer grownInflated(final Codec codec, final ByteBuffer full) {
+        if (this.maxInflatedLength <= full.capacity()) {
+            throw new Cipher.UnreadableCipheredContent(
+                format("Compressed content inflates beyond {0} bytes", this.maxInflatedLength));
+        }
+        return codec.grown(full, (int) Math.min(2L * full.capacity(), this.maxInflatedLength));
+    }
+
+    private byte[] knownDictionaryOf(final int id) {
+        final byte[] known = this.knownDictionaries.get(id);
+        if (isNull(known)) {
+            throw new Cipher.UnreadableCipheredContent(format("Content was compressed with unknown dictionary {0}",
+                                                              Integer.toUnsignedString(id, 16)));
+        }
+        return known;
+    }
+
+    private Map<Integer, byte[]> withKnown(final byte[] dictionary) {
+        final Map<Integer, byte[]> known = new HashMap<>(this.knownDictionaries);
+        known.put(idOf(dictionary), dictionary);
+        return known;
+    }
+
+    private static byte[] checkedDictionary(final byte[] dictionary) {
+        if (requireNonNull(dictionary).length == 0 || MAX_DICTIONARY_LENGTH < dictionary.length) {
+            throw new IllegalArgumentException(
+                format("Dictionary length must be from 1 to {0}, not {1}", MAX_DICTIONARY_LENGTH, dictionary.length));
+        }
+        return dictionary.clone();
+    }
+
+    // as written in zlib streams (DICTID)
+    private static int idOf(final byte[] dictionary) {
+        final Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        return (int) adler.getValue();
+    }
+
+    /**
+     * deflater, inflater and output buffer of a thread
+     */
+    private static final class Codec {
+        private final Deflater deflater = new Deflater();
+        private final Inflater inflater = new Inflater();
+        private ByteBuffer output = ByteBuffer.allocate(1024);
+
+        private ByteBuffer output(final int expectedLength) {
+            final ByteBuffer buffer = (this.output.capacity() >= expectedLength)
+                                          ? this.output.clear()
+                                          : ByteBuffer.allocate(expectedLength);
+            return retained(buffer);
+        }
+
+        private ByteBuffer grown(final ByteBuffer full) {
+            return grown(full, full.capacity() * 2);
+        }
+
+        private ByteBuffer grown(final ByteBuffer full, final int capacity) {
+            final ByteBuffer buffer = ByteBuffer.allocate(capacity).put(full.flip());
+            return retained(buffer);
+        }
+
+        private ByteBuffer retained(final ByteBuffer buffer) {
+            if (MAX_RETAINED_LENGTH >= buffer.capacity()) this.output = buffer;
+            return buffer;
+        }
+    }
+
+}
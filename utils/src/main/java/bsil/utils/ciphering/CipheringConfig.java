@@ -5,6 +5,7 @@ import javax.crypto.NoSuchPaddingException;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -36,19 +37,37 @@ public final class CipheringConfig {
 
     private final String key;
     private final CipheringTransformation transformation;
+    // null for the default IV source of the transformation
+    private final IvSource ivSource;
 
 
-    private CipheringConfig(final String key, final String transformation)
-    throws NoSuchAlgorithmException, NoSuchPaddingException {
+    private CipheringConfig(final String key, final CipheringTransformation transformation, final IvSource ivSource) {
         this.key = requireNonNull(key);
-        this.transformation = CipheringTransformation.ofName(transformation);
+        this.transformation = requireNonNull(transformation);
+        this.ivSource = ivSource;
         verifyKeyConstraints();
 
     }
 
     public static CipheringConfig ofKeyAndTransformation(final String key, final String transformation)
     throws NoSuchAlgorithmException, NoSuchPaddingException {
-        return new CipheringConfig(key, transformation);
+        return new CipheringConfig(key, CipheringTransformation.ofName(transformation), null);
+    }
+
+    /**
+     * @param transformation transformation with its chosen provider
+     */
+    public static CipheringConfig ofKeyAndTransformation(final String key,
+                                                         final CipheringTransformation transformation) {
+        return new CipheringConfig(key, transformation, null);
+    }
+
+    /**
+     * @param ivSource where IVs of cipherings created from this config come from, when their transformation requires
+     *                 some and is not authenticated (GCM nonces stay counter based)
+     */
+    public CipheringConfig withIvSource(final IvSource ivSource) {
+        return new CipheringConfig(this.key, this.transformation, requireNonNull(ivSource));
     }
 
     private void verifyKeyConstraints() {
@@ -79,6 +98,13 @@ public final class CipheringConfig {
         return this.transformation;
     }
 
+    /**
+     * @return IV source given by {@link #withIvSource(IvSource)}, empty for the default one of the transformation
+     */
+    public Optional<IvSource> ivSource() {
+        return Optional.ofNullable(this.ivSource);
+    }
+
     public static final class KeyDoesNotMeetCipheringTransformationRequirements extends RuntimeException {
 
         private KeyDoesNotMeetCipheringTransformationRequirements() {
@@ -4,23 +4,58 @@ import bsil.utils.SystemPropertiesHelper;
 
 import javax.crypto.NoSuchPaddingException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+import static java.util.Objects.isNull;
+import static java.util.Optional.ofNullable;
 
 public enum CipheringConfigHelper {;
 
     public static final String CIPHERING_KEY_PROPERTY = "ciphering.key";
     public static final String CIPHERING_TRANSFORMATION_PROPERTY = "ciphering.transformation";
+    public static final String CIPHERING_IV_RESEED_INTERVAL_PROPERTY = "ciphering.iv.reseed.interval";
+    public static final String CIPHERING_PROVIDER_PROPERTY = "ciphering.provider";
+    // value of ciphering.provider asking for calibration of installed providers
+    public static final String FASTEST_PROVIDER = "fastest";
 
     private static String cipheringKey() {
         return SystemPropertiesHelper.getProperty(CIPHERING_KEY_PROPERTY);
     }
 
-    private static String cipheringTransformation() {
-        return SystemPropertiesHelper.getProperty(CIPHERING_TRANSFORMATION_PROPERTY);
+    /**
+     * @return transformation from the default provider, or the one given by ciphering.provider : a provider name,
+     *  or "fastest" to calibrate installed providers
+     */
+    private static CipheringTransformation cipheringTransformation()
+    throws NoSuchPaddingException, NoSuchAlgorithmException {
+        final String transformation = SystemPropertiesHelper.getProperty(CIPHERING_TRANSFORMATION_PROPERTY);
+        final String provider = SystemPropertiesHelper.getProperty(CIPHERING_PROVIDER_PROPERTY);
+        if (isNull(provider) || provider.isBlank()) {
+            return CipheringTransformation.ofName(transformation);
+        }
+        return FASTEST_PROVIDER.equals(provider)
+                   ? CipheringTransformation.ofNameWithFastestProvider(transformation)
+                   : CipheringTransformation.ofNameAndProvider(transformation, provider);
+    }
+
+    /**
+     * @return IV source reseeding after the number of IVs given by ciphering.iv.reseed.interval, empty if not set
+     */
+    private static Optional<IvSource> ivSource() {
+        return ofNullable(SystemPropertiesHelper.getProperty(CIPHERING_IV_RESEED_INTERVAL_PROPERTY))
+                   .filter(interval -> !interval.isBlank())
+                   .map(interval -> PrefetchingIvSource.of(PrefetchingIvSource.DEFAULT_IVS_PER_BATCH,
+                                                           Long.parseLong(interval.trim())));
     }
 
+    /**
+     * @return config of ciphering.key and ciphering.transformation, with IVs reseeded as ciphering.iv.reseed.interval
+     *  says when it is set
+     */
     public static CipheringConfig config()
     throws NoSuchPaddingException, NoSuchAlgorithmException {
-        return CipheringConfig.ofKeyAndTransformation(cipheringKey(), cipheringTransformation());
+        final CipheringConfig config = CipheringConfig.ofKeyAndTransformation(cipheringKey(), cipheringTransformation());
+        return ivSource().map(config::withIvSource).orElse(config);
     }
 
 }
@@ -0,0 +1,76 @@
+package bsil.utils.ciphering;
+
+import java.util.Arrays;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * binary envelope preceding a ciphered content :
+ *  format version (1 byte), flags (1 byte), transformation id (1 byte), key id (1 byte), IV (length of transformation)
+ *  flags : {@link #COMPRESSED}
+ */
+enum CipheringEnvelope {;
+
+    static final byte VERSION = 1;
+    static final byte NO_FLAGS = 0;
+    // content was deflated before ciphering
+    static final byte COMPRESSED = 1;
+
+    private static final int VERSION_INDEX = 0;
+    private static final int FLAGS_INDEX = 1;
+    private static final int TRANSFORMATION_INDEX = 2;
+    private static final int KEY_INDEX = 3;
+    private static final int FIXED_LENGTH = 4;
+
+    static int lengthFor(final CipheringTransformation transformation) {
+        return FIXED_LENGTH + transformation.ivLength();
+    }
+
+    /**
+     * @throws IllegalArgumentException when transformation has no stable id
+     */
+    static byte[] headerOf(final CipheringTransformation transformation, final int keyId, final byte flags,
+                           final byte[] iv) {
+        if (!transformation.hasId()) {
+            throw new IllegalArgumentException(format("Transformation {0} has no stable id", transformation));
+        }
+        final byte[] header = new byte[lengthFor(transformation)];
+        header[VERSION_INDEX] = VERSION;
+        header[FLAGS_INDEX] = flags;
+        header[TRANSFORMATION_INDEX] = (byte) transformation.id();
+        header[KEY_INDEX] = (byte) keyId;
+        if (null != iv) System.arraycopy(iv, 0, header, FIXED_LENGTH, iv.length);
+        return header;
+    }
+
+    /**
+     * @throws Cipher.UnreadableCipheredContent when header is not one of given transformation, in a known version
+     */
+    static void check(final byte[] header, final CipheringTransformation transformation) {
+        if (VERSION != header[VERSION_INDEX]) {
+            throw new Cipher.UnreadableCipheredContent(format("Unsupported envelope version {0}", header[VERSION_INDEX]));
+        }
+        if ((byte) transformation.id() != header[TRANSFORMATION_INDEX]) {
+            throw new Cipher.UnreadableCipheredContent(
+                format("Content was ciphered with transformation {0}, not {1}",
+                       Byte.toUnsignedInt(header[TRANSFORMATION_INDEX]), transformation));
+        }
+    }
+
+    static byte flagsOf(final byte[] header) {
+        return header[FLAGS_INDEX];
+    }
+
+    static boolean isCompressed(final byte[] header) {
+        return 0 != (flagsOf(header) & COMPRESSED);
+    }
+
+    static int keyIdOf(final byte[] header) {
+        return Byte.toUnsignedInt(header[KEY_INDEX]);
+    }
+
+    static byte[] ivOf(final byte[] header) {
+        return (FIXED_LENGTH == header.length) ? null : Arrays.copyOfRange(header, FIXED_LENGTH, header.length);
+    }
+
+}
@@ -0,0 +1,138 @@
+package bsil.utils.ciphering;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * where asynchronous ciphering runs, away from callers threads (event loops...)
+ *  backpressure : beyond max pending tasks (running or waiting), new ones fail at once with
+ *  a {@link RejectedExecutionException} instead of queuing without limit
+ */
+public final class CipheringExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final boolean virtualThreads;
+
+    private CipheringExecutor(final ExecutorService executor, final int maxPending, final boolean virtualThreads) {
+        if (0 >= maxPending) {
+            throw new IllegalArgumentException(format("Max pending tasks must be positive, not {0}", maxPending));
+        }
+        this.executor = requireNonNull(executor);
+        this.pending = new Semaphore(maxPending);
+        this.maxPending = maxPending;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return executor of as many daemon threads as available processors, ciphering being CPU bound
+     */
+    public static CipheringExecutor shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * @param threads    number of daemon threads ciphering
+     * @param maxPending number of tasks running or waiting at most
+     */
+    public static CipheringExecutor ofThreads(final int threads, final int maxPending) {
+        return new CipheringExecutor(Executors.newFixedThreadPool(threads, daemonThreads()), maxPending, false);
+    }
+
+    /**
+     * as many virtual threads as available processors
+     * @see #ofVirtualThreads(int, int)
+     */
+    public static CipheringExecutor ofVirtualThreads(final int maxPending) {
+        return ofVirtualThreads(Runtime.getRuntime().availableProcessors(), maxPending);
+    }
+
+    /**
+     * a fixed number of virtual threads when the JVM has them (Java 21+), else as {@link #ofThreads(int, int)}
+     *  not one virtual thread per task : engines, buffers and IV batches of a ciphering are kept by thread, so
+     *  long lived threads reuse them from a task to the next where short lived ones would set them up each time
+     * @param threads    number of virtual threads ciphering
+     * @param maxPending number of tasks running or waiting at most
+     */
+    public static CipheringExecutor ofVirtualThreads(final int threads, final int maxPending) {
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Object builder = builderType.getMethod("name", String.class, long.class)
+                                              .invoke(Thread.class.getMethod("ofVirtual").invoke(null),
+                                                      "ciphering-virtual-", 1L);
+            final ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return new CipheringExecutor(Executors.newFixedThreadPool(threads, factory), maxPending, true);
+        }
+        catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            // not there, or preview only
+            return ofThreads(threads, maxPending);
+        }
+    }
+
+    public boolean isOnVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    public int maxPending() {
+        return this.maxPending;
+    }
+
+    /**
+     * @return a future of the result of given operation, failed with a {@link RejectedExecutionException} when
+     *  too many tasks are pending
+     */
+    public <T> CompletableFuture<T> supplyAsync(final Supplier<T> operation) {
+        requireNonNull(operation);
+        if (!this.pending.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                format("Too many ciphering tasks pending : {0}", this.maxPending)));
+        }
+        try {
+            return CompletableFuture.supplyAsync(operation, this.executor)
+                                    .whenComplete((result, failure) -> this.pending.release());
+        }
+        catch (final RejectedExecutionException e) {
+            this.pending.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * stops this executor, once pending tasks are done ; the shared one is never to close
+     */
+    @Override
+    public void close() {
+        if (this == Shared.INSTANCE) {
+            throw new IllegalStateException("Shared ciphering executor cannot be closed");
+        }
+        this.executor.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "ciphering-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // created on first use only
+    private static final class Shared {
+        private static final CipheringExecutor INSTANCE = ofThreads(Runtime.getRuntime().availableProcessors(),
+                                                                    DEFAULT_MAX_PENDING);
+    }
+
+}
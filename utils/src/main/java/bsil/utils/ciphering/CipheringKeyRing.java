@@ -0,0 +1,106 @@
+package bsil.utils.ciphering;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * immutable set of keys of one transformation, identified by an id from 0 to 255
+ *  the current key ciphers, every key of the ring unciphers : contents ciphered with a previous key stay readable
+ *  while keys rotate. Keys are prepared once, finding the one of a ciphered content is an array lookup.
+ */
+public final class CipheringKeyRing {
+
+    private static final int MAX_KEYS = 256;
+
+    private final CipheringTransformation transformation;
+    private final SecretKeySpec[] keys;
+    private final int currentKeyId;
+
+    private CipheringKeyRing(final CipheringTransformation transformation, final SecretKeySpec[] keys,
+                             final int currentKeyId) {
+        this.transformation = requireNonNull(transformation);
+        this.keys = keys;
+        this.currentKeyId = currentKeyId;
+    }
+
+    /**
+     * @param keyId  id of the key, written in each ciphered content
+     * @param config key and transformation of the ring
+     * @throws IllegalArgumentException when the transformation has no stable id to envelope contents with
+     */
+    public static CipheringKeyRing ofCurrentKey(final int keyId, final CipheringConfig config) {
+        if (!config.cipheringTransformation().hasId()) {
+            throw new IllegalArgumentException(
+                format("Transformation {0} has no stable id : its contents cannot be enveloped",
+                       config.cipheringTransformation()));
+        }
+        final CipheringKeyRing emptyRing = new CipheringKeyRing(config.cipheringTransformation(),
+                                                                new SecretKeySpec[MAX_KEYS], keyId);
+        return emptyRing.withKey(keyId, config);
+    }
+
+    /**
+     * @return a ring also able to uncipher contents ciphered with given key
+     */
+    public CipheringKeyRing withKey(final int keyId, final CipheringConfig config) {
+        checkKeyId(keyId);
+        if (!this.transformation.toString().equals(config.cipheringTransformation().toString())) {
+            throw new IllegalArgumentException(format("Key {0} is not for transformation {1}", keyId, this.transformation));
+        }
+        final SecretKeySpec[] newKeys = Arrays.copyOf(this.keys, MAX_KEYS);
+        newKeys[keyId] = new SecretKeySpec(config.cipheringKey().getBytes(), this.transformation.algorithm());
+        return new CipheringKeyRing(this.transformation, newKeys, this.currentKeyId);
+    }
+
+    /**
+     * @return a ring ciphering with given key, still unciphering with the previous ones
+     */
+    public CipheringKeyRing withCurrentKey(final int keyId, final CipheringConfig config) {
+        final CipheringKeyRing ring = withKey(keyId, config);
+        return new CipheringKeyRing(ring.transformation, ring.keys, keyId);
+    }
+
+    /**
+     * @return a ring no more able to uncipher contents ciphered with given key
+     */
+    public CipheringKeyRing withoutKey(final int keyId) {
+        checkKeyId(keyId);
+        if (this.currentKeyId == keyId) {
+            throw new IllegalArgumentException("Current key cannot be removed from ring");
+        }
+        final SecretKeySpec[] newKeys = Arrays.copyOf(this.keys, MAX_KEYS);
+        newKeys[keyId] = null;
+        return new CipheringKeyRing(this.transformation, newKeys, this.currentKeyId);
+    }
+
+    public CipheringTransformation cipheringTransformation() {
+        return this.transformation;
+    }
+
+    public int currentKeyId() {
+        return this.currentKeyId;
+    }
+
+    SecretKeySpec currentKey() {
+        return this.keys[this.currentKeyId];
+    }
+
+    SecretKeySpec keyOf(final int keyId) {
+        final SecretKeySpec key = this.keys[keyId];
+        if (isNull(key)) {
+            throw new Cipher.UnreadableCipheredContent(format("Unknown ciphering key id {0}", keyId));
+        }
+        return key;
+    }
+
+    private static void checkKeyId(final int keyId) {
+        if (0 > keyId || MAX_KEYS <= keyId) {
+            throw new IllegalArgumentException(format("Key id must be between 0 and {0}", MAX_KEYS - 1));
+        }
+    }
+
+}
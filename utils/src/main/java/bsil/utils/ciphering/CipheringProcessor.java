@@ -0,0 +1,411 @@
+package bsil.utils.ciphering;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * reactive ciphering of one content, received and published as chunks : header first, as Cipher streams do
+ *  small chunks are gathered up to a batch before being ciphered ; a chunk is requested from upstream only when
+ *  downstream has demand and the previous batch was published : memory stays bounded under slow consumers
+ *  signals are processed on the threads emitting them, no thread is ever blocked
+ *  authenticated transformations (GCM) keep the whole content until its end to uncipher it
+ */
+public final class CipheringProcessor implements Flow.Processor<ByteBuffer, ByteBuffer> {
+
+    public static final int DEFAULT_BATCH_LENGTH = 64 * 1024;
+
+    private final Cipher ciphering;
+    private final int mode;
+    // created on subscription for ciphering, once header is read for unciphering
+    private Cipher.Session session;
+    private ByteBuffer batch;
+
+    private final Queue<ByteBuffer> outputs = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger drains = new AtomicInteger();
+    private final AtomicReference<Flow.Subscriber<? super ByteBuffer>> downstream = new AtomicReference<>();
+    // signals to downstream wait for its onSubscribe to return
+    private volatile boolean subscribed;
+    private volatile Flow.Subscription upstream;
+    private volatile boolean upstreamRequested;
+    private volatile boolean upstreamDone;
+    private volatile Throwable failure;
+    private volatile boolean finished;
+    private volatile boolean cancelled;
+
+    private CipheringProcessor(final Cipher ciphering, final int mode, final int batchLength) {
+        if (requireNonNull(ciphering).headerLength() >= batchLength) {
+            throw new IllegalArgumentException(format("Batch length must be more than header length, not {0}",
+                                                      batchLength));
+        }
+        this.ciphering = requireNonNull(ciphering);
+        this.mode = mode;
+        this.batch = ByteBuffer.allocate(batchLength);
+    }
+
+    /**
+     * @return processor ciphering chunks of one content, to subscribe to a publisher of them
+     */
+    public static CipheringProcessor ciphering(final Cipher ciphering) {
+        return new CipheringProcessor(ciphering, javax.crypto.Cipher.ENCRYPT_MODE, DEFAULT_BATCH_LENGTH);
+    }
+
+    /**
+     * @return processor unciphering chunks of one ciphered content, header included
+     */
+    public static CipheringProcessor unciphering(final Cipher ciphering) {
+        return new CipheringProcessor(ciphering, javax.crypto.Cipher.DECRYPT_MODE, DEFAULT_BATCH_LENGTH);
+    }
+
+    /**
+     * @param batchLength length of content gathered before being ciphered
+     */
+    public CipheringProcessor withBatchLength(final int batchLength) {
+        return new CipheringProcessor(this.ciphering, this.mode, batchLength);
+    }
+
+    /**
+     * @return processor ciphering each received content as a whole, one ciphered content published for each
+     */
+    public static Flow.Processor<String, byte[]> ofContents(final Cipher ciphering) {
+        requireNonNull(ciphering);
+        return new ContentsProcessor<>(ciphering::cipher);
+    }
+
+    /**
+     * @return processor unciphering each received ciphered content, without padding
+     */
+    public static Flow.Processor<byte[], String> ofCipheredContents(final Cipher ciphering) {
+        requireNonNull(ciphering);
+        return new ContentsProcessor<>(cipheredContent -> ciphering.uncipherChars(cipheredContent).toString());
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+        requireNonNull(subscriber);
+        if (!this.downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(NO_SUBSCRIPTION);
+            subscriber.onError(new IllegalStateException("Ciphering processor has already a subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+                if (0 >= n) {
+                    failed(new IllegalArgumentException(format("Requested chunks must be positive, not {0}", n)));
+                }
+                else {
+                    CipheringProcessor.this.requested.getAndAccumulate(n, CipheringProcessor::cappedSum);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                CipheringProcessor.this.cancelled = true;
+                cancelUpstream();
+            }
+        });
+        this.subscribed = true;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        requireNonNull(subscription);
+        if (nonNull(this.upstream)) {
+            subscription.cancel();
+            return;
+        }
+        this.upstream = subscription;
+        if (javax.crypto.Cipher.ENCRYPT_MODE == this.mode) {
+            try {
+                this.session = this.ciphering.cipheringSession();
+                if (0 < this.session.header.length) this.outputs.add(ByteBuffer.wrap(this.session.header));
+            }
+            catch (final RuntimeException e) {
+                failed(e);
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(final ByteBuffer chunk) {
+        requireNonNull(chunk);
+        if (nonNull(this.failure) || this.cancelled) {
+            return;
+        }
+        try {
+            gather(chunk);
+        }
+        catch (final GeneralSecurityException | RuntimeException e) {
+            failed(e);
+        }
+        this.upstreamRequested = false;
+        drain();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        failed(requireNonNull(throwable));
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        this.upstreamDone = true;
+        drain();
+    }
+
+    private void gather(final ByteBuffer chunk)
+    throws GeneralSecurityException {
+        while (chunk.hasRemaining()) {
+            final int length = Math.min(chunk.remaining(), this.batch.remaining());
+            this.batch.put(CtrCounters.slice(chunk, chunk.position(), length));
+            chunk.position(chunk.position() + length);
+            if (!this.batch.hasRemaining()) {
+                process(false);
+            }
+        }
+    }
+
+    // ciphers the batch, once the header is known
+    private void process(final boolean last)
+    throws GeneralSecurityException {
+        this.batch.flip();
+        if (isNull(this.session)) {
+            final int headerLength = this.ciphering.headerLength();
+            if (headerLength > this.batch.remaining()) {
+                if (last) {
+                    throw new Cipher.UnreadableCipheredContent("Ciphered content is too short to contain its header");
+                }
+                this.batch.compact();
+                return;
+            }
+            final byte[] header = new byte[headerLength];
+            this.batch.get(header);
+            this.session = this.ciphering.uncipheringSession(header);
+        }
+        final ByteBuffer output = ByteBuffer.allocate(this.session.cipher.getOutputSize(this.batch.remaining()));
+        if (last) {
+            this.session.cipher.doFinal(this.batch, output);
+        }
+        else {
+            this.session.cipher.update(this.batch, output);
+        }
+        this.batch.clear();
+        if (0 < output.flip().remaining()) {
+            this.outputs.add(output);
+        }
+    }
+
+    private void drain() {
+        if (0 != this.drains.getAndIncrement()) {
+            return;
+        }
+        do {
+            final Flow.Subscriber<? super ByteBuffer> subscriber = this.downstream.get();
+            if (isNull(subscriber) || !this.subscribed || this.finished) {
+                continue;
+            }
+            if (this.cancelled) {
+                this.outputs.clear();
+                continue;
+            }
+            if (nonNull(this.failure)) {
+                this.finished = true;
+                this.outputs.clear();
+                cancelUpstream();
+                subscriber.onError(this.failure);
+                continue;
+            }
+            while (0 < this.requested.get() && !this.outputs.isEmpty()) {
+                this.requested.decrementAndGet();
+                subscriber.onNext(this.outputs.poll());
+            }
+            if (this.outputs.isEmpty() && this.upstreamDone) {
+                if (nonNull(this.batch)) {
+                    finish();
+                    // a last output may be there, or a failure
+                    this.drains.incrementAndGet();
+                }
+                else {
+                    this.finished = true;
+                    subscriber.onComplete();
+                }
+                continue;
+            }
+            if (this.outputs.isEmpty() && 0 < this.requested.get() && !this.upstreamRequested
+                && nonNull(this.upstream) && !this.upstreamDone) {
+                this.upstreamRequested = true;
+                this.upstream.request(1);
+            }
+        } while (0 != this.drains.decrementAndGet());
+    }
+
+    private void finish() {
+        try {
+            process(true);
+        }
+        catch (final AEADBadTagException e) {
+            this.failure = new Cipher.TamperedCipheredContent(e);
+        }
+        catch (final GeneralSecurityException | RuntimeException e) {
+            this.failure = e;
+        }
+        this.batch = null;
+    }
+
+    private void failed(final Throwable throwable) {
+        if (isNull(this.failure)) {
+            this.failure = (throwable instanceof AEADBadTagException)
+                               ? new Cipher.TamperedCipheredContent(throwable)
+                               : throwable;
+        }
+    }
+
+    private void cancelUpstream() {
+        final Flow.Subscription subscription = this.upstream;
+        if (nonNull(subscription)) subscription.cancel();
+    }
+
+    private static long cappedSum(final long current, final long added) {
+        final long sum = current + added;
+        return (0 > sum) ? Long.MAX_VALUE : sum;
+    }
+
+    private static final Flow.Subscription NO_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(final long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    /**
+     * one item published for each received one : demand of downstream is passed as is to upstream
+     */
+    private static final class ContentsProcessor<T, R> implements Flow.Processor<T, R> {
+        private final Function<? super T, ? extends R> operation;
+        private final AtomicReference<Flow.Subscriber<? super R>> downstream = new AtomicReference<>();
+        private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+        private final AtomicLong pendingRequests = new AtomicLong();
+        private volatile boolean done;
+        // upstream may end before downstream subscribes : given to it once onSubscribe returned, by whichever of
+        // subscribe and terminate comes last, each one publishing its part before checking the other
+        private final AtomicReference<Consumer<Flow.Subscriber<? super R>>> terminal = new AtomicReference<>();
+        private volatile boolean subscribed;
+        private final AtomicBoolean terminated = new AtomicBoolean();
+
+        private ContentsProcessor(final Function<? super T, ? extends R> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+            requireNonNull(subscriber);
+            if (!this.downstream.compareAndSet(null, subscriber)) {
+                subscriber.onSubscribe(NO_SUBSCRIPTION);
+                subscriber.onError(new IllegalStateException("Ciphering processor has already a subscriber"));
+                return;
+            }
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                    final Flow.Subscription subscription = ContentsProcessor.this.upstream.get();
+                    if (nonNull(subscription)) {
+                        subscription.request(n);
+                    }
+                    else {
+                        // given to upstream once subscribed
+                        ContentsProcessor.this.pendingRequests.getAndAccumulate(n, CipheringProcessor::cappedSum);
+                        requestPending();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    ContentsProcessor.this.done = true;
+                    final Flow.Subscription subscription = ContentsProcessor.this.upstream.get();
+                    if (nonNull(subscription)) subscription.cancel();
+                }
+            });
+            this.subscribed = true;
+            deliverTerminal();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            if (!this.upstream.compareAndSet(null, requireNonNull(subscription))) {
+                subscription.cancel();
+                return;
+            }
+            requestPending();
+        }
+
+        private void requestPending() {
+            final Flow.Subscription subscription = this.upstream.get();
+            final long pending = nonNull(subscription) ? this.pendingRequests.getAndSet(0) : 0;
+            if (0 != pending) subscription.request(pending);
+        }
+
+        @Override
+        public void onNext(final T item) {
+            if (this.done) return;
+            final R result;
+            try {
+                result = this.operation.apply(item);
+            }
+            catch (final RuntimeException e) {
+                this.upstream.get().cancel();
+                onError(e);
+                return;
+            }
+            this.downstream.get().onNext(result);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            requireNonNull(throwable);
+            terminate(subscriber -> subscriber.onError(throwable));
+        }
+
+        @Override
+        public void onComplete() {
+            terminate(Flow.Subscriber::onComplete);
+        }
+
+        private void terminate(final Consumer<Flow.Subscriber<? super R>> ending) {
+            if (this.done || !this.terminal.compareAndSet(null, ending)) return;
+            this.done = true;
+            deliverTerminal();
+        }
+
+        // exactly once, after onSubscribe
+        private void deliverTerminal() {
+            final Consumer<Flow.Subscriber<? super R>> ending = this.terminal.get();
+            if (this.subscribed && nonNull(ending) && this.terminated.compareAndSet(false, true)) {
+                ending.accept(this.downstream.get());
+            }
+        }
+    }
+
+}
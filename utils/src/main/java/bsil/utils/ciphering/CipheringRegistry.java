@@ -0,0 +1,238 @@
+package bsil.utils.ciphering;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * ciphering of each tenant, loaded once then kept while used : its config is validated, its key prepared and
+ *  its JCA ciphers pooled by threads only once
+ *  bounded by number of tenants (least recently used evicted first, a sixteenth of them at once) and by idle time
+ *  lookups never block : a found tenant is only stamped with its use. Evictions are swept by the thread finding
+ *  one due (too many tenants, or a sweep period elapsed) and the sweep lock free : the bound may be exceeded
+ *  for a while under contention. An idle tenant found before it is swept is loaded again.
+ *  loading runs outside of any lock : two threads may load a tenant at once, the first one loaded is kept
+ *  evicted and invalidated cipherings are released : JCA ciphers held for them by threads are dropped
+ */
+public final class CipheringRegistry {
+
+    public static final int DEFAULT_MAX_TENANTS = 1024;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final long STAMP_PRECISION_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final Loader loader;
+    private final int maxTenants;
+    private final long idleTimeoutNanos;
+    // idle tenants are swept 8 times by idle timeout
+    private final long sweepPeriodNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock sweeping = new ReentrantLock();
+    private volatile long nextSweep;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    CipheringRegistry(final Loader loader, final int maxTenants, final Duration idleTimeout,
+                      final LongSupplier nanoClock) {
+        if (0 >= maxTenants) {
+            throw new IllegalArgumentException(format("Max tenants must be positive, not {0}", maxTenants));
+        }
+        this.loader = requireNonNull(loader);
+        this.maxTenants = maxTenants;
+        this.idleTimeoutNanos = requireNonNull(idleTimeout).toNanos();
+        this.sweepPeriodNanos = Math.max(1, this.idleTimeoutNanos / 8);
+        this.nanoClock = requireNonNull(nanoClock);
+        this.nextSweep = nanoClock.getAsLong() + this.sweepPeriodNanos;
+    }
+
+    /**
+     * @param loader ciphering of a tenant, called on its first use and after its eviction ; a new one each time,
+     *               released once evicted
+     */
+    public static CipheringRegistry of(final Loader loader) {
+        return new CipheringRegistry(loader, DEFAULT_MAX_TENANTS, DEFAULT_IDLE_TIMEOUT, System::nanoTime);
+    }
+
+    /**
+     * @param configs          config of a tenant
+     * @param paddingGenerator padding of contents, for tenants of padded transformations
+     */
+    public static CipheringRegistry ofConfigs(final ConfigLoader configs, final IntFunction<String> paddingGenerator) {
+        requireNonNull(configs);
+        requireNonNull(paddingGenerator);
+        return of(tenantId -> {
+            final CipheringConfig config = configs.configOf(tenantId);
+            return config.cipheringTransformation().isPaddedAlgorithm()
+                       ? Cipher.createPaddedCiphering(config, paddingGenerator)
+                       : Cipher.createCiphering(config);
+        });
+    }
+
+    public CipheringRegistry withMaxTenants(final int maxTenants) {
+        return new CipheringRegistry(this.loader, maxTenants, Duration.ofNanos(this.idleTimeoutNanos), this.nanoClock);
+    }
+
+    public CipheringRegistry withIdleTimeout(final Duration idleTimeout) {
+        return new CipheringRegistry(this.loader, this.maxTenants, idleTimeout, this.nanoClock);
+    }
+
+    /**
+     * @throws UnknownTenant when the ciphering of the tenant cannot be loaded
+     */
+    public Cipher cipheringOf(final String tenantId) {
+        requireNonNull(tenantId);
+        final long now = this.nanoClock.getAsLong();
+        final Cipher cached = cached(tenantId, now);
+        if (nonNull(cached)) {
+            this.hits.increment();
+            if (0 <= now - this.nextSweep) trySweep(now);
+            return cached;
+        }
+        this.misses.increment();
+        final Cipher loaded = loaded(tenantId);
+        final Entry entry = this.entries.computeIfAbsent(tenantId, id -> new Entry(loaded, now));
+        if (this.maxTenants < this.entries.size() || 0 <= now - this.nextSweep) trySweep(now);
+        return entry.ciphering;
+    }
+
+    /**
+     * forget the ciphering of a tenant : its config changed
+     */
+    public void invalidate(final String tenantId) {
+        final Entry entry = this.entries.remove(tenantId);
+        if (nonNull(entry)) entry.ciphering.release();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return format("{0} tenants, {1} hits, {2} misses, {3} evictions", size(), hits(), misses(), evictions());
+    }
+
+    private Cipher cached(final String tenantId, final long now) {
+        final Entry entry = this.entries.get(tenantId);
+        if (isNull(entry)) {
+            return null;
+        }
+        if (isIdle(entry, now)) {
+            evicted(tenantId, entry);
+            return null;
+        }
+        // stamped once by millisecond at most : hits do not keep invalidating a shared cache line
+        if (STAMP_PRECISION_NANOS < now - entry.lastUse) entry.lastUse = now;
+        return entry.ciphering;
+    }
+
+    // by the thread finding a sweep due, others going on
+    private void trySweep(final long now) {
+        if (!this.sweeping.tryLock()) {
+            return;
+        }
+        try {
+            this.nextSweep = now + this.sweepPeriodNanos;
+            this.entries.forEach((tenantId, entry) -> {
+                if (isIdle(entry, now)) evicted(tenantId, entry);
+            });
+            // stamps change while sweeping : a snapshot of them is sorted
+            final long[] lastUses = this.entries.values().stream().mapToLong(entry -> entry.lastUse).sorted().toArray();
+            // a sixteenth of the bound is freed at once : next misses find room without sweeping
+            final int exceeding = (this.maxTenants < lastUses.length)
+                                      ? lastUses.length - (this.maxTenants - this.maxTenants / 16)
+                                      : 0;
+            if (0 < exceeding) {
+                final long eldestUse = lastUses[exceeding - 1];
+                final Iterator<Map.Entry<String, Entry>> tenants = this.entries.entrySet().iterator();
+                for (int evicted = 0; exceeding > evicted && tenants.hasNext(); ) {
+                    final Map.Entry<String, Entry> tenant = tenants.next();
+                    if (eldestUse >= tenant.getValue().lastUse && evicted(tenant.getKey(), tenant.getValue())) {
+                        evicted++;
+                    }
+                }
+            }
+        }
+        finally {
+            this.sweeping.unlock();
+        }
+    }
+
+    private boolean isIdle(final Entry entry, final long now) {
+        return this.idleTimeoutNanos < now - entry.lastUse;
+    }
+
+    private boolean evicted(final String tenantId, final Entry entry) {
+        final boolean evicted = this.entries.remove(tenantId, entry);
+        if (evicted) {
+            this.evictions.increment();
+            // JCA ciphers of its thread locals would otherwise stay in worker threads
+            entry.ciphering.release();
+        }
+        return evicted;
+    }
+
+    private Cipher loaded(final String tenantId) {
+        try {
+            return requireNonNull(this.loader.cipheringOf(tenantId));
+        }
+        catch (final GeneralSecurityException | RuntimeException e) {
+            throw new UnknownTenant(tenantId, e);
+        }
+    }
+
+    private static final class Entry {
+        private final Cipher ciphering;
+        private volatile long lastUse;
+
+        private Entry(final Cipher ciphering, final long lastUse) {
+            this.ciphering = ciphering;
+            this.lastUse = lastUse;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Cipher cipheringOf(String tenantId) throws GeneralSecurityException;
+    }
+
+    @FunctionalInterface
+    public interface ConfigLoader {
+        CipheringConfig configOf(String tenantId) throws GeneralSecurityException;
+    }
+
+    /**
+     * ciphering of a tenant could not be loaded
+     */
+    public static final class UnknownTenant extends RuntimeException {
+
+        private UnknownTenant(final String tenantId, final Throwable cause) {
+            super(format("Cannot load ciphering of tenant {0}", tenantId), cause);
+        }
+    }
+
+}
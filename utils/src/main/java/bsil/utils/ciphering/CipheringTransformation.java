@@ -2,28 +2,94 @@ package bsil.utils.ciphering;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 public final class CipheringTransformation {
 
     private static final Pattern NOTPADDED_ALGORITHMS_PATTERN = Pattern.compile("^.*/NoPadding$");
+    // recommended sizes for GCM (NIST SP 800-38D)
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 16;
+    // stable ids of transformations, as written in ciphered contents envelopes : never change nor reuse one
+    private static final Map<String, Integer> KNOWN_IDS = Map.of("AES/ECB/PKCS5Padding", 1,
+                                                                 "AES/CTR/NoPadding", 2,
+                                                                 "AES/GCM/NoPadding", 3,
+                                                                 "AES/CBC/PKCS5Padding", 4,
+                                                                 "AES/ECB/NoPadding", 5);
+    private static final int UNKNOWN_ID = 0;
+    // calibrations are run once per transformation and per JVM
+    private static final Map<String, CipheringTransformation> FASTEST = new ConcurrentHashMap<>();
     private final String transformation;
-    private Cipher cipher;
+    // null for the default provider resolution of JCA
+    private final Provider provider;
+    private final String providerName;
+    private final String providerChoice;
+    // known once at creation : newCipher() does not change them
+    private final String algorithm;
+    private final String mode;
+    private final int blockSize;
 
-    private CipheringTransformation(final String transformation)
+    private CipheringTransformation(final String transformation, final Provider provider, final String providerChoice)
         throws NoSuchPaddingException, NoSuchAlgorithmException
     {
         this.transformation = requireNonNull(transformation);
-        this.cipher=Cipher.getInstance(this.transformation);
+        this.provider = provider;
+        final Cipher cipher = newCipher();
+        this.providerName = cipher.getProvider().getName();
+        this.providerChoice = providerChoice;
+        final String[] parts = cipher.getAlgorithm().split("/");
+        this.algorithm = parts[0];
+        this.mode = Arrays.stream(parts).limit(2).skip(1).findFirst().orElse("");
+        this.blockSize = cipher.getBlockSize();
     }
 
     public static CipheringTransformation ofName(final String transformation)
     throws NoSuchPaddingException, NoSuchAlgorithmException {
-        return new CipheringTransformation(transformation);
+        return new CipheringTransformation(transformation, null, "default");
+    }
+
+    /**
+     * @param providerName name of an installed JCA provider, to use instead of the default one
+     */
+    public static CipheringTransformation ofNameAndProvider(final String transformation, final String providerName)
+    throws NoSuchPaddingException, NoSuchAlgorithmException {
+        final Provider provider = Security.getProvider(requireNonNull(providerName));
+        if (isNull(provider)) {
+            throw new NoSuchAlgorithmException(format("Provider {0} is not installed", providerName));
+        }
+        return new CipheringTransformation(transformation, provider, "configured");
+    }
+
+    /**
+     * the first call for a transformation calibrates every provider offering it (a fraction of a second each),
+     *  next ones reuse the choice
+     * @see #providerChoice()
+     */
+    public static CipheringTransformation ofNameWithFastestProvider(final String transformation)
+    throws NoSuchPaddingException, NoSuchAlgorithmException {
+        final CipheringTransformation known = FASTEST.get(requireNonNull(transformation));
+        if (nonNull(known)) {
+            return known;
+        }
+        final ProviderCalibration.Choice choice = ProviderCalibration.fastestFor(ofName(transformation));
+        final CipheringTransformation fastest = new CipheringTransformation(transformation, choice.provider,
+                                                                            choice.reason);
+        return Optional.ofNullable(FASTEST.putIfAbsent(transformation, fastest)).orElse(fastest);
     }
 
 
@@ -31,10 +97,28 @@ public final class CipheringTransformation {
         return !NOTPADDED_ALGORITHMS_PATTERN.matcher(this.transformation).matches();
     }
 
+    /**
+     * @return a new JCA cipher, never shared : JCA ciphers are stateful and not thread safe
+     */
     public Cipher newCipher()
     throws NoSuchPaddingException, NoSuchAlgorithmException {
-        this.cipher=Cipher.getInstance(this.transformation);
-        return this.cipher;
+        return isNull(this.provider)
+                   ? Cipher.getInstance(this.transformation)
+                   : Cipher.getInstance(this.transformation, this.provider);
+    }
+
+    /**
+     * @return name of the JCA provider ciphers come from
+     */
+    public String provider() {
+        return this.providerName;
+    }
+
+    /**
+     * @return why this provider is used : default, configured, or calibration results
+     */
+    public String providerChoice() {
+        return this.providerChoice;
     }
 
     @Override
@@ -43,10 +127,79 @@ public final class CipheringTransformation {
     }
 
     public String algorithm() {
-        return this.cipher.getAlgorithm().split("/")[0];
+        return this.algorithm;
     }
 
     public String mode() {
-        return Arrays.stream(this.cipher.getAlgorithm().split("/")).limit(2).skip(1).findFirst().orElse("");
+        return this.mode;
+    }
+
+    public int blockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * @return stable id of this transformation, 0 if it has none
+     */
+    public int id() {
+        return KNOWN_IDS.getOrDefault(this.transformation, UNKNOWN_ID);
+    }
+
+    /**
+     * @return true when this transformation has a stable id : its contents can be enveloped
+     */
+    public boolean hasId() {
+        return UNKNOWN_ID != id();
+    }
+
+    /**
+     * @return true when each block is ciphered with its own counter : blocks can be ciphered in any order
+     */
+    public boolean isCounterMode() {
+        return "CTR".equals(this.mode);
+    }
+
+    /**
+     * @return true when each content is ciphered with its own IV, written before it
+     */
+    public boolean isIVRequired() {
+        return isCounterMode() || isAuthenticated() || "CBC".equals(this.mode);
+    }
+
+    /**
+     * @return true when ciphered contents carry an authentication tag, checked while unciphering
+     */
+    public boolean isAuthenticated() {
+        return "GCM".equals(this.mode);
+    }
+
+    public int ivLength() {
+        if (isAuthenticated()) return GCM_IV_LENGTH;
+        return isIVRequired() ? this.blockSize : 0;
+    }
+
+    public int tagLength() {
+        return isAuthenticated() ? GCM_TAG_LENGTH : 0;
+    }
+
+    public AlgorithmParameterSpec parameterSpecOf(final byte[] iv) {
+        return isAuthenticated() ? new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv) : new IvParameterSpec(iv);
+    }
+
+    /**
+     * @param contentLength length of a content to cipher
+     * @return length of its ciphered form, without IV
+     */
+    public int cipheredLengthFor(final int contentLength) {
+        return Math.toIntExact(cipheredLengthFor((long) contentLength));
+    }
+
+    /**
+     * @see #cipheredLengthFor(int)
+     */
+    public long cipheredLengthFor(final long contentLength) {
+        return (isPaddedAlgorithm() && 0 < this.blockSize)
+                   ? ((contentLength / this.blockSize) + 1) * this.blockSize
+                   : contentLength + tagLength();
     }
 }
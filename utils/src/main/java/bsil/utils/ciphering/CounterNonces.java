@@ -0,0 +1,43 @@
+package bsil.utils.ciphering;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * nonces made of a random fixed field followed by a counter (deterministic construction of NIST SP 800-38D)
+ *  unique for one instance, without any PRNG call once created
+ *  not to use for CTR IVs : counters of successive contents would overlap
+ */
+final class CounterNonces implements IvSource {
+
+    private static final int FIXED_FIELD_LENGTH = 4;
+
+    private final int nonceLength;
+    private final byte[] fixedField;
+    // random start : two instances sharing a key are very unlikely to overlap
+    private final AtomicLong counter;
+
+    CounterNonces(final int nonceLength, final SecureRandom random) {
+        if (FIXED_FIELD_LENGTH + Long.BYTES > nonceLength) {
+            throw new IllegalArgumentException("Nonce too short for a counter : " + nonceLength);
+        }
+        this.nonceLength = nonceLength;
+        this.fixedField = new byte[nonceLength - Long.BYTES];
+        random.nextBytes(this.fixedField);
+        this.counter = new AtomicLong(random.nextLong());
+    }
+
+    @Override
+    public byte[] nextIv(final int length) {
+        if (this.nonceLength != length) {
+            throw new IllegalArgumentException("Nonces of this source are " + this.nonceLength + " bytes long");
+        }
+        final byte[] nonce = new byte[this.nonceLength];
+        ByteBuffer.wrap(nonce)
+                  .put(this.fixedField)
+                  .putLong(this.counter.getAndIncrement());
+        return nonce;
+    }
+
+}
@@ -0,0 +1,37 @@
+package bsil.utils.ciphering;
+
+import java.nio.ByteBuffer;
+
+/**
+ * counter arithmetic of CTR mode : the counter block is the IV seen as a big-endian integer,
+ *  incremented by one for each block of content, as done by JCA CTR ciphers
+ */
+enum CtrCounters {;
+
+    /**
+     * @param iv         counter block of first content block
+     * @param blockIndex index of a content block, from 0
+     * @return counter block of given content block
+     */
+    static byte[] ivAtBlock(final byte[] iv, final long blockIndex) {
+        final byte[] counter = iv.clone();
+        long carry = blockIndex;
+        for (int i = counter.length - 1; 0 <= i && 0 != carry; i--) {
+            final long sum = (counter[i] & 0xFFL) + (carry & 0xFFL);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return counter;
+    }
+
+    /**
+     * @return a view of [from, from + length[ of buffer, with its own position and limit
+     */
+    static ByteBuffer slice(final ByteBuffer buffer, final int from, final int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(from);
+        duplicate.limit(from + length);
+        return duplicate.slice();
+    }
+
+}
@@ -0,0 +1,16 @@
+package bsil.utils.ciphering;
+
+/**
+ * source of IVs (or nonces) used by ciphering
+ *  implementations must be thread safe : a Cipher is shared by threads
+ */
+@FunctionalInterface
+public interface IvSource {
+
+    /**
+     * @param length wanted IV length in bytes
+     * @return a fresh IV, owned by the caller
+     */
+    byte[] nextIv(int length);
+
+}
@@ -0,0 +1,134 @@
+package bsil.utils.ciphering;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * CTR keystreams computed ahead by background tasks, each one tied to a fresh IV and handed out once
+ *  CTR ciphering is a XOR with the keystream of (key, IV) : ciphering threads are left with the XOR only
+ *  when no keystream is ready, or the content is longer than a slot, ciphering is done inline as usual
+ *  keystreams are secret material : they only live in the ring until used
+ */
+final class KeystreamRing {
+
+    private final CipheringTransformation transformation;
+    private final SecretKeySpec key;
+    private final IvSource ivSource;
+    private final int slots;
+    private final int slotLength;
+    private final CipheringExecutor executor;
+    private final BlockingQueue<Keystream> keystreams;
+    // at most one refill task at once
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private KeystreamRing(final CipheringTransformation transformation, final SecretKeySpec key,
+                          final IvSource ivSource, final int slots, final int slotLength,
+                          final CipheringExecutor executor) {
+        if (0 >= slots || 0 >= slotLength) {
+            throw new IllegalArgumentException(
+                format("Keystream slots and slot length must be positive, not {0} and {1}", slots, slotLength));
+        }
+        this.transformation = requireNonNull(transformation);
+        this.key = requireNonNull(key);
+        this.ivSource = requireNonNull(ivSource);
+        this.slots = slots;
+        this.slotLength = slotLength;
+        this.executor = requireNonNull(executor);
+        this.keystreams = new ArrayBlockingQueue<>(slots);
+    }
+
+    /**
+     * @return a ring being filled
+     */
+    static KeystreamRing of(final CipheringTransformation transformation, final SecretKeySpec key,
+                            final IvSource ivSource, final int slots, final int slotLength,
+                            final CipheringExecutor executor) {
+        final KeystreamRing ring = new KeystreamRing(transformation, key, ivSource, slots, slotLength, executor);
+        ring.refill();
+        return ring;
+    }
+
+    /**
+     * same slots, for IVs of another source
+     */
+    KeystreamRing withIvSource(final IvSource ivSource) {
+        return of(this.transformation, this.key, ivSource, this.slots, this.slotLength, this.executor);
+    }
+
+    /**
+     * @return a ready keystream of at least given length, null when content is to be ciphered inline
+     */
+    Keystream next(final int length) {
+        if (this.slotLength < length) {
+            return null;
+        }
+        final Keystream keystream = this.keystreams.poll();
+        (isNull(keystream) ? this.misses : this.hits).increment();
+        refill();
+        return keystream;
+    }
+
+    long hits() {
+        return this.hits.sum();
+    }
+
+    long misses() {
+        return this.misses.sum();
+    }
+
+    private void refill() {
+        if (0 < this.keystreams.remainingCapacity() && this.refilling.compareAndSet(false, true)) {
+            // a rejected task (too many pending) only delays the refill to the next use
+            this.executor.supplyAsync(this::filled).whenComplete((filled, failure) -> this.refilling.set(false));
+        }
+    }
+
+    private Void filled() {
+        try {
+            final javax.crypto.Cipher cipher = this.transformation.newCipher();
+            final byte[] zeros = new byte[this.slotLength];
+            while (0 < this.keystreams.remainingCapacity()) {
+                final byte[] iv = this.ivSource.nextIv(this.transformation.ivLength());
+                cipher.init(javax.crypto.Cipher.ENCRYPT_MODE, this.key, this.transformation.parameterSpecOf(iv));
+                this.keystreams.offer(new Keystream(iv, cipher.doFinal(zeros)));
+            }
+            return null;
+        }
+        catch (final GeneralSecurityException e) {
+            throw new InternalError("Something gone wrong while computing keystreams", e);
+        }
+    }
+
+    /**
+     * keystream of a fresh IV
+     */
+    static final class Keystream {
+        final byte[] iv;
+        private final byte[] bytes;
+
+        private Keystream(final byte[] iv, final byte[] bytes) {
+            this.iv = iv;
+            this.bytes = bytes;
+        }
+
+        /**
+         * dst[dstOffset + i] = src[i] ^ keystream[from + i], for i in [0, length[
+         */
+        void xor(final byte[] src, final int length, final byte[] dst, final int dstOffset, final int from) {
+            for (int i = 0; length > i; i++) {
+                dst[dstOffset + i] = (byte) (src[i] ^ this.bytes[from + i]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package bsil.utils.ciphering;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * IV source with one DRBG per thread, handing out IVs from prefetched blocks
+ *  no SecureRandom creation nor lookup on the ciphering path once a thread got its first IV,
+ *  and no contention between threads. Each DRBG is reseeded after a given number of IVs.
+ */
+public final class PrefetchingIvSource implements IvSource {
+
+    private static final String DRBG_ALGORITHM = "DRBG";
+    public static final int DEFAULT_IVS_PER_BATCH = 64;
+    public static final long DEFAULT_RESEED_INTERVAL = 1L << 20;
+
+    private static final PrefetchingIvSource SHARED =
+        new PrefetchingIvSource(DEFAULT_IVS_PER_BATCH, DEFAULT_RESEED_INTERVAL, PrefetchingIvSource::newDrbg);
+
+    private final int ivsPerBatch;
+    private final long reseedInterval;
+    private final Supplier<? extends SecureRandom> randomFactory;
+    private final ThreadLocal<Batch> batches;
+
+    PrefetchingIvSource(final int ivsPerBatch, final long reseedInterval,
+                        final Supplier<? extends SecureRandom> randomFactory) {
+        if (0 >= ivsPerBatch || 0 >= reseedInterval) {
+            throw new IllegalArgumentException("IVs per batch and reseed interval must be positive");
+        }
+        this.ivsPerBatch = ivsPerBatch;
+        this.reseedInterval = reseedInterval;
+        this.randomFactory = requireNonNull(randomFactory);
+        this.batches = ThreadLocal.withInitial(() -> new Batch(this.randomFactory.get()));
+    }
+
+    /**
+     * @return source shared by all cipherings not configured otherwise
+     */
+    public static PrefetchingIvSource shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param ivsPerBatch    number of IVs prefetched at once by a thread
+     * @param reseedInterval number of IVs handed out by a thread between two reseeds of its DRBG
+     */
+    public static PrefetchingIvSource of(final int ivsPerBatch, final long reseedInterval) {
+        return new PrefetchingIvSource(ivsPerBatch, reseedInterval, PrefetchingIvSource::newDrbg);
+    }
+
+    /**
+     * @return number of IVs handed out by a thread between two reseeds of its DRBG
+     */
+    public long reseedInterval() {
+        return this.reseedInterval;
+    }
+
+    @Override
+    public byte[] nextIv(final int length) {
+        return this.batches.get().next(length);
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance(DRBG_ALGORITHM);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * IVs prefetched by one thread
+     */
+    private final class Batch {
+        private SecureRandom random;
+        private byte[] block = new byte[0];
+        private int position;
+        private long sinceReseed;
+
+        private Batch(final SecureRandom random) {
+            this.random = random;
+        }
+
+        private byte[] next(final int length) {
+            if (this.block.length - this.position < length) {
+                prefetch(length);
+            }
+            final byte[] iv = Arrays.copyOfRange(this.block, this.position, this.position + length);
+            this.position += length;
+            return iv;
+        }
+
+        private void prefetch(final int length) {
+            if (PrefetchingIvSource.this.reseedInterval <= this.sinceReseed) {
+                reseed();
+            }
+            if (this.block.length != length * PrefetchingIvSource.this.ivsPerBatch) {
+                this.block = new byte[length * PrefetchingIvSource.this.ivsPerBatch];
+            }
+            this.random.nextBytes(this.block);
+            this.position = 0;
+            this.sinceReseed += PrefetchingIvSource.this.ivsPerBatch;
+        }
+
+        private void reseed() {
+            try {
+                this.random.reseed();
+            }
+            catch (final UnsupportedOperationException e) {
+                this.random = PrefetchingIvSource.this.randomFactory.get();
+            }
+            this.sinceReseed = 0;
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package bsil.utils.ciphering;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * short calibration of JCA providers offering a transformation : the same content ciphered the same number of times
+ *  by each one, in providers preference order
+ *  to keep the choice stable from a run to another, the first provider whose throughput is close to the best one wins
+ */
+enum ProviderCalibration {;
+
+    private static final int CONTENT_LENGTH = 16 * 1024;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 1000;
+    // throughputs closer than this to the best one are deemed equal
+    private static final double TOLERANCE = 0.10;
+
+    /**
+     * @param transformation transformation to calibrate providers with
+     * @return fastest provider, and why it was chosen
+     * @throws NoSuchAlgorithmException when no provider can be measured
+     */
+    static Choice fastestFor(final CipheringTransformation transformation)
+    throws NoSuchAlgorithmException {
+        final List<Measure> measures = new ArrayList<>();
+        for (final Provider provider : Security.getProviders()) {
+            try {
+                measures.add(new Measure(provider, throughputOf(transformation, provider)));
+            }
+            catch (final GeneralSecurityException | RuntimeException e) {
+                // provider does not offer the transformation, or fails with it : not a candidate
+            }
+        }
+        final double best = measures.stream().mapToDouble(measure -> measure.megabytesPerSecond).max()
+                                    .orElseThrow(() -> new NoSuchAlgorithmException(
+                                        format("No provider could be calibrated for {0}", transformation)));
+        final Measure chosen = measures.stream()
+                                       .filter(measure -> measure.megabytesPerSecond >= best * (1 - TOLERANCE))
+                                       .findFirst()
+                                       .orElseThrow();
+        final String results = measures.stream()
+                                       .sorted(Comparator.comparingDouble(Measure::megabytesPerSecond).reversed())
+                                       .map(Measure::toString)
+                                       .collect(Collectors.joining(", "));
+        return new Choice(chosen.provider,
+                          format("calibrated, first in preference order within {0,number,percent} of the best : {1}",
+                                 TOLERANCE, results));
+    }
+
+    private static double throughputOf(final CipheringTransformation transformation, final Provider provider)
+    throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(transformation.toString(), provider);
+        final SecretKey key = KeyGenerator.getInstance(transformation.algorithm()).generateKey();
+        final byte[] content = new byte[CONTENT_LENGTH];
+        final byte[] iv = new byte[transformation.ivLength()];
+        init(cipher, transformation, key, iv);
+        final byte[] output = new byte[cipher.getOutputSize(CONTENT_LENGTH)];
+        for (int round = 1; WARMUP_ROUNDS >= round; round++) {
+            cipherOnce(cipher, transformation, key, iv, round, content, output);
+        }
+        final long start = System.nanoTime();
+        for (int round = 1; MEASURED_ROUNDS >= round; round++) {
+            cipherOnce(cipher, transformation, key, iv, WARMUP_ROUNDS + round, content, output);
+        }
+        final long elapsed = Math.max(1, System.nanoTime() - start);
+        return ((double) CONTENT_LENGTH * MEASURED_ROUNDS / 1_000_000d) / (elapsed / 1_000_000_000d);
+    }
+
+    private static void cipherOnce(final Cipher cipher, final CipheringTransformation transformation,
+                                   final SecretKey key, final byte[] iv, final int round, final byte[] content,
+                                   final byte[] output)
+    throws GeneralSecurityException {
+        if (0 < iv.length) {
+            // GCM refuses to cipher twice with the same IV
+            init(cipher, transformation, key, CtrCounters.ivAtBlock(iv, round));
+        }
+        cipher.doFinal(content, 0, content.length, output, 0);
+    }
+
+    private static void init(final Cipher cipher, final CipheringTransformation transformation, final SecretKey key,
+                             final byte[] iv)
+    throws GeneralSecurityException {
+        if (0 < iv.length) {
+            cipher.init(Cipher.ENCRYPT_MODE, key, transformation.parameterSpecOf(iv));
+        } else {
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+        }
+    }
+
+    /**
+     * provider chosen for a transformation, and why
+     */
+    static final class Choice {
+        final Provider provider;
+        final String reason;
+
+        Choice(final Provider provider, final String reason) {
+            this.provider = provider;
+            this.reason = reason;
+        }
+    }
+
+    private static final class Measure {
+        private final Provider provider;
+        private final double megabytesPerSecond;
+
+        private Measure(final Provider provider, final double megabytesPerSecond) {
+            this.provider = provider;
+            this.megabytesPerSecond = megabytesPerSecond;
+        }
+
+        private double megabytesPerSecond() {
+            return this.megabytesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return format("{0} {1,number,#} MB/s", this.provider.getName(), this.megabytesPerSecond);
+        }
+    }
+
+}
@@ -10,35 +10,62 @@ import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Let configure a custom gson with NULL FRIENDLY, NO STATIC, NO TRANSIENT, NO VOLATILE fields
+ *  a Gson is immutable and thread safe : one snapshot is shared, its type adapters cache staying warm between calls,
+ *  and is rebuilt (copy on write) under the class lock each time the builder is changed : a converter set up, or a
+ *  configuration applied by {@link #configure(Consumer)}
  */
 public enum CustomGsonBuilder {;
 
-    private static final transient GsonBuilder gsonBuilder;
+    // guarded by the class lock
+    private static final GsonBuilder gsonBuilder = new GsonBuilder()
+                                                       .enableComplexMapKeySerialization()
+                                                       .serializeNulls()
+                                                       .excludeFieldsWithModifiers(Modifier.STATIC,
+                                                                                   Modifier.TRANSIENT,
+                                                                                   Modifier.VOLATILE);
 
-    // ensure setup for a class is made once only
-    private static final transient Collection<String> knownConverters = new HashSet<>();
+    // ensure setup for a class is made once only : guarded by the class lock
+    private static final Collection<Class<?>> knownConverters = new HashSet<>();
 
-    static {
-        gsonBuilder = new GsonBuilder()
-                          .enableComplexMapKeySerialization()
-                          .serializeNulls()
-                          .excludeFieldsWithModifiers(Modifier.STATIC,
-                                                      Modifier.TRANSIENT,
-                                                      Modifier.VOLATILE);
+    // read without lock, published again once the builder may have changed
+    private static volatile Gson snapshot = gsonBuilder.create();
+    // builder was handed out by the deprecated instance() since the snapshot was built
+    private static volatile boolean stale;
 
 
+    /**
+     * @return shared Gson, with converters set up so far
+     */
+    public static Gson create() {
+        return stale ? rebuilt() : snapshot;
     }
 
-
-    public static Gson create() {
-        return gsonBuilder.create();
+    /**
+     * change the shared builder : the Gson next {@link #create()} calls give is rebuilt with the change, under the
+     *  same lock, before this returns
+     * @param configuration registering type adapters, policies... on the builder, which must not be kept
+     */
+    public static synchronized void configure(final Consumer<? super GsonBuilder> configuration) {
+        requireNonNull(configuration).accept(gsonBuilder);
+        stale = false;
+        snapshot = gsonBuilder.create();
     }
 
-    public static GsonBuilder instance() {
+    /**
+     * @return the shared builder : what is registered through it is in the Gson next {@link #create()} calls give,
+     *  unless one of them rebuilds it meanwhile, reading the builder while it is changed
+     * @deprecated changes are not published safely, use {@link #configure(Consumer)}
+     */
+    @Deprecated
+    public static synchronized GsonBuilder instance() {
+        stale = true;
         return gsonBuilder;
     }
 
@@ -48,11 +75,20 @@ public enum CustomGsonBuilder {;
      * @param converter function that takes an instance and gives a json String of it
      * @param type      Class to jsonify
      */
-    public static <T> void setupJsonConverterForClass(final Function<T, String> converter, final Class<T> type) {
-        if (!knownConverters.contains(type.getCanonicalName())) {
-            instance().registerTypeHierarchyAdapter(type, new MyTypeAdapter<>(converter));
-            knownConverters.add(type.getCanonicalName());
+    public static synchronized <T> void setupJsonConverterForClass(final Function<T, String> converter,
+                                                                   final Class<T> type) {
+        if (knownConverters.add(requireNonNull(type))) {
+            gsonBuilder.registerTypeHierarchyAdapter(type, new MyTypeAdapter<>(requireNonNull(converter)));
+            snapshot = gsonBuilder.create();
+        }
+    }
+
+    private static synchronized Gson rebuilt() {
+        if (stale) {
+            stale = false;
+            snapshot = gsonBuilder.create();
         }
+        return snapshot;
     }
 
 
@@ -0,0 +1,203 @@
+package bsil.utils.json;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * json writer spotting, as it writes, fields converted to an empty object and followed by another field :
+ *  a sign of a value gson could not convert (no field to write)
+ *  fields written with an empty or blank raw value (jsonValue) are spotted too : no value at all
+ *  linear : each written token is looked at once, nothing is read back
+ */
+final class DetectingJsonWriter extends JsonWriter {
+
+    // objects and arrays being written, innermost first
+    private final Deque<Container> containers = new ArrayDeque<>();
+    // name of the next value, null when it is not a field
+    private String pendingName;
+    // last one spotted, as written : "name":{} or "name":
+    private String emptyField;
+    private boolean nullDocument;
+
+    DetectingJsonWriter(final Writer out) {
+        super(out);
+    }
+
+    /**
+     * @return last field converted to an empty object and followed by another field, or written without value, in
+     *  json, as written
+     */
+    Optional<String> emptyField() {
+        return Optional.ofNullable(this.emptyField);
+    }
+
+    /**
+     * @return true when the whole document written is null : gson could not convert it
+     */
+    boolean isNullDocument() {
+        return this.nullDocument;
+    }
+
+    /**
+     * @return last field converted to an empty object and followed by another field, in given json
+     */
+    static Optional<String> emptyFieldOf(final String json) {
+        final DetectingJsonWriter writer = new DetectingJsonWriter(new StringWriter(json.length()));
+        try {
+            final JsonElement element = JsonParser.parseString(json);
+            CustomGsonBuilder.create().toJson(element, writer);
+        }
+        catch (final JsonParseException e) {
+            // not json : nothing to spot
+        }
+        return writer.emptyField();
+    }
+
+    @Override
+    public JsonWriter name(final String name)
+    throws IOException {
+        final Container container = this.containers.peek();
+        if (nonNull(container) && nonNull(container.lastEmptyField)) {
+            this.emptyField = container.lastEmptyField;
+        }
+        if (nonNull(container)) {
+            container.empty = false;
+            container.lastEmptyField = null;
+        }
+        this.pendingName = name;
+        return super.name(name);
+    }
+
+    @Override
+    public JsonWriter jsonValue(final String value)
+    throws IOException {
+        if (nonNull(value) && value.isBlank() && nonNull(this.pendingName)) {
+            this.emptyField = quoted(this.pendingName, isHtmlSafe()) + ':' + value;
+        }
+        this.pendingName = null;
+        return super.jsonValue(value);
+    }
+
+    @Override
+    public JsonWriter nullValue()
+    throws IOException {
+        if (this.containers.isEmpty()) {
+            this.nullDocument = true;
+        }
+        return super.nullValue();
+    }
+
+    @Override
+    public JsonWriter beginObject()
+    throws IOException {
+        this.containers.push(new Container(this.pendingName));
+        this.pendingName = null;
+        return super.beginObject();
+    }
+
+    @Override
+    public JsonWriter endObject()
+    throws IOException {
+        final Container object = this.containers.pop();
+        final Container parent = this.containers.peek();
+        if (nonNull(parent)) {
+            parent.lastEmptyField = (object.empty && nonNull(object.name))
+                                        ? quoted(object.name, isHtmlSafe()) + ":{}"
+                                        : null;
+        }
+        this.pendingName = null;
+        return super.endObject();
+    }
+
+    @Override
+    public JsonWriter beginArray()
+    throws IOException {
+        this.containers.push(new Container(null));
+        this.pendingName = null;
+        return super.beginArray();
+    }
+
+    @Override
+    public JsonWriter endArray()
+    throws IOException {
+        this.containers.pop();
+        final Container parent = this.containers.peek();
+        if (nonNull(parent)) {
+            parent.lastEmptyField = null;
+        }
+        this.pendingName = null;
+        return super.endArray();
+    }
+
+    // as JsonWriter writes names : only for spotted fields, names being written as is otherwise
+    private static String quoted(final String name, final boolean htmlSafe) {
+        final StringBuilder quoted = new StringBuilder(name.length() + 2).append('"');
+        for (int i = 0; name.length() > i; i++) {
+            final char c = name.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                case '\b':
+                    quoted.append("\\b");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\f':
+                    quoted.append("\\f");
+                    break;
+                case '\u2028':
+                case '\u2029':
+                    quoted.append(String.format("\\u%04x", (int) c));
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '=':
+                case '\'':
+                    quoted.append(htmlSafe ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+                    break;
+                default:
+                    quoted.append((0x20 > c) ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * an object or an array being written
+     */
+    private static final class Container {
+        // field holding it, null when not a field
+        private final String name;
+        private boolean empty = true;
+        // previous field of this object, when converted to an empty object
+        private String lastEmptyField;
+
+        private Container(final String name) {
+            this.name = name;
+        }
+    }
+
+}
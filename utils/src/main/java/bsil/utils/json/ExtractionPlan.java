@@ -0,0 +1,119 @@
+package bsil.utils.json;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * named json paths compiled once into a tree of their steps : paths sharing a prefix share its walk, so values of all
+ *  paths are collected in one walk of the document (see {@link JsonReader#extract(ExtractionPlan)})
+ *  simple paths only are planned (fields and positive array indexes : $.a.b[0]['c']) ; others (wildcards, deep
+ *  scans, filters...) are read one by one by JsonPath
+ */
+public final class ExtractionPlan {
+
+    private final Step root = new Step();
+    // names in given order
+    private final List<String> names;
+    // not planned paths, by name
+    private final Map<String, String> unplannedPaths = new LinkedHashMap<>();
+
+    private ExtractionPlan(final Map<String, String> pathsByName) {
+        this.names = List.copyOf(pathsByName.keySet());
+        pathsByName.forEach((name, path) -> {
+            if (!planned(requireNonNull(name), requireNonNull(path, format("No path for {0}", name)))) {
+                this.unplannedPaths.put(name, path);
+            }
+        });
+    }
+
+    /**
+     * @param pathsByName json path of each value to extract, by name of the value
+     */
+    public static ExtractionPlan of(final Map<String, String> pathsByName) {
+        return new ExtractionPlan(requireNonNull(pathsByName));
+    }
+
+    public List<String> names() {
+        return this.names;
+    }
+
+    /**
+     * @return paths read one by one, by name
+     */
+    public Map<String, String> unplannedPaths() {
+        return Collections.unmodifiableMap(this.unplannedPaths);
+    }
+
+    /**
+     * @param document      document, as provided
+     * @param provider      provider of the document
+     * @param stringValue   string of a value, as the provider gives it ; null for json null
+     * @param unplannedRead string value of a not planned path, null when missing
+     * @return value of each name, null when missing or json null
+     */
+    Map<String, String> extract(final Object document, final JsonProvider provider,
+                                final Function<Object, String> stringValue,
+                                final Function<String, String> unplannedRead) {
+        final Map<String, String> values = new LinkedHashMap<>();
+        this.names.forEach(name -> values.put(name, null));
+        collect(this.root, document, provider, stringValue, values);
+        this.unplannedPaths.forEach((name, path) -> values.put(name, unplannedRead.apply(path)));
+        return values;
+    }
+
+    private static void collect(final Step step, final Object value, final JsonProvider provider,
+                                final Function<Object, String> stringValue, final Map<String, String> values) {
+        if (!step.names.isEmpty()) {
+            final String found = stringValue.apply(value);
+            step.names.forEach(name -> values.put(name, found));
+        }
+        if (!step.fields.isEmpty() && provider.isMap(value)) {
+            step.fields.forEach((field, next) -> {
+                final Object fieldValue = provider.getMapValue(value, field);
+                if (JsonProvider.UNDEFINED != fieldValue) collect(next, fieldValue, provider, stringValue, values);
+            });
+        }
+        if (!step.indexes.isEmpty() && provider.isArray(value)) {
+            final int length = provider.length(value);
+            step.indexes.forEach((index, next) -> {
+                if (length > index) collect(next, provider.getArrayIndex(value, index), provider, stringValue, values);
+            });
+        }
+    }
+
+    // false when the path is not simple
+    private boolean planned(final String name, final String path) {
+        final Optional<List<Object>> steps = SimplePaths.stepsOf(path);
+        if (steps.isEmpty() || steps.get().contains(SimplePaths.WILDCARD)) {
+            return false;
+        }
+        Step step = this.root;
+        for (final Object next : steps.get()) {
+            step = (next instanceof Integer)
+                       ? step.indexes.computeIfAbsent((Integer) next, index -> new Step())
+                       : step.fields.computeIfAbsent((String) next, field -> new Step());
+        }
+        step.names.add(name);
+        return true;
+    }
+
+    /**
+     * a step of paths : names of values found there, and next steps
+     */
+    private static final class Step {
+        private final List<String> names = new ArrayList<>(1);
+        private final Map<String, Step> fields = new LinkedHashMap<>();
+        private final Map<Integer, Step> indexes = new LinkedHashMap<>();
+    }
+
+}
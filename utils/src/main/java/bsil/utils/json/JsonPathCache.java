@@ -0,0 +1,123 @@
+package bsil.utils.json;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * recently used compiled json paths, by path : a compiled JsonPath is immutable, so shared by all readers
+ *  lookups never lock : a found path is only marked as used. Inserts beyond max paths evict paths not used since
+ *  the previous eviction first (second chance), an approximation of least recently used ones
+ *  paths are compiled outside of any lock : two threads may compile one at once, the first one kept is shared
+ */
+public final class JsonPathCache {
+
+    public static final int DEFAULT_MAX_PATHS = 1024;
+
+    private final int maxPaths;
+    private final Map<String, Entry> paths = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    JsonPathCache(final int maxPaths) {
+        if (0 >= maxPaths) {
+            throw new IllegalArgumentException(format("Max paths must be positive, not {0}", maxPaths));
+        }
+        this.maxPaths = maxPaths;
+    }
+
+    /**
+     * @throws com.jayway.jsonpath.InvalidPathException when path cannot be compiled
+     */
+    JsonPath compiled(final String path) {
+        final Entry cached = this.paths.get(requireNonNull(path));
+        if (nonNull(cached)) {
+            this.hits.increment();
+            // written once per eviction round at most : hits do not keep invalidating a shared cache line
+            if (!cached.used) cached.used = true;
+            return cached.compiled;
+        }
+        this.misses.increment();
+        final Entry compiled = new Entry(JsonPath.compile(path));
+        final Entry kept = this.paths.putIfAbsent(path, compiled);
+        if (nonNull(kept)) {
+            return kept.compiled;
+        }
+        if (this.maxPaths < this.paths.size()) evict(path);
+        return compiled.compiled;
+    }
+
+    public int maxPaths() {
+        return this.maxPaths;
+    }
+
+    public int size() {
+        return this.paths.size();
+    }
+
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return share of lookups finding their path compiled, from 0 to 1 ; 0 before any lookup
+     */
+    public double hitRate() {
+        final long hits = hits();
+        final long lookups = hits + misses();
+        return (0 == lookups) ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return format("{0}/{1} paths, {2} hits, {3} misses, {4} evictions", size(), this.maxPaths, hits(), misses(),
+                      evictions());
+    }
+
+    // inserts only : lookups go on while paths are evicted
+    private synchronized void evict(final String kept) {
+        // a first round takes their second chance from used paths, a second one evicts them
+        for (int round = 0; 2 > round && this.maxPaths < this.paths.size(); round++) {
+            final Iterator<Map.Entry<String, Entry>> paths = this.paths.entrySet().iterator();
+            while (this.maxPaths < this.paths.size() && paths.hasNext()) {
+                final Map.Entry<String, Entry> next = paths.next();
+                final Entry entry = next.getValue();
+                if (kept.equals(next.getKey())) {
+                    continue;
+                }
+                if (entry.used) {
+                    entry.used = false;
+                }
+                else if (this.paths.remove(next.getKey(), entry)) {
+                    this.evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final JsonPath compiled;
+        private volatile boolean used;
+
+        private Entry(final JsonPath compiled) {
+            this.compiled = compiled;
+        }
+    }
+
+}
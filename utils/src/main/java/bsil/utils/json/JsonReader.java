@@ -5,6 +5,7 @@ import com.google.gson.JsonElement;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
 import com.jayway.jsonpath.TypeRef;
 import com.jayway.jsonpath.spi.json.GsonJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
@@ -19,12 +20,20 @@ import static java.util.Objects.nonNull;
 
 /**
  * a facade made to simplify access to JsonDatas
+ * @see JsonStreamReader for documents too large to be held in memory
  */
 public class JsonReader {
 
     // because of logback bug...
     private static final transient String LINE_SEPARATOR_SYSPROP = "line.separator";
     public static final String UNDEFINED = "UNDEFINED";
+    private static final ListTypeRef LIST_TYPE = new ListTypeRef();
+    private static final MapTypeRef MAP_TYPE = new MapTypeRef();
+
+    // shared by all readers, rebuilt only when custom gson changes
+    private static volatile GsonConfiguration configuration;
+    private static volatile JsonPathCache pathCache = new JsonPathCache(JsonPathCache.DEFAULT_MAX_PATHS);
+
     private final String json;
 
     // for reading purpose
@@ -34,12 +43,83 @@ public class JsonReader {
         this.json=json;
     }
 
+    /**
+     * compiled paths kept from now on : previous ones are forgotten
+     * @param maxPaths number of compiled paths kept at most, least recently used evicted first
+     */
+    public static void setupPathCache(final int maxPaths) {
+        pathCache = new JsonPathCache(maxPaths);
+    }
+
+    /**
+     * @return compiled paths, and their hit statistics
+     */
+    public static JsonPathCache pathCache() {
+        return pathCache;
+    }
+
     public Optional<String> jsonStringValue(final String path) {
         enforceLineSeparator();
-        return Optional.ofNullable(jsonPathContext().read(path))
+        return Optional.ofNullable(stringValueOf(jsonPathContext().read(pathCache.compiled(path))));
+    }
+
+    /**
+     * values of all paths in one walk of the document, paths sharing a prefix sharing its walk
+     * @param pathsByName json path of each value to extract, by name of the value
+     * @return value of each name, as {@link #jsonOrNull(String)} gives it, but null as well when path is missing
+     * @see #extract(ExtractionPlan)
+     */
+    public Map<String, String> extract(final Map<String, String> pathsByName) {
+        return extract(ExtractionPlan.of(pathsByName));
+    }
+
+    /**
+     * @param plan paths to extract, planned once for all documents
+     * @see #extract(Map)
+     */
+    public Map<String, String> extract(final ExtractionPlan plan) {
+        enforceLineSeparator();
+        final JsonProvider provider = config().jsonProvider();
+        return plan.extract(jsonPathContext().json(), provider, value -> stringValueOf(readValueOf(provider, value)),
+                            this::jsonOrNullWhenMissing);
+    }
+
+    private String jsonOrNullWhenMissing(final String path) {
+        try {
+            return jsonOrNull(path);
+        }
+        catch (final PathNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return string of a json value, as {@link #jsonOrNull(String)} gives it when read at its path ; null for
+     *  json null
+     */
+    static String jsonStringOf(final JsonElement element) {
+        final JsonProvider provider = config().jsonProvider();
+        return stringValueOf(readValueOf(provider, provider.unwrap(element)));
+    }
+
+    /**
+     * @param value a value found in a document, as the provider gives it
+     * @return the value as JsonPath reads it : put in its results by the provider (primitives are converted back to
+     *  json, numbers normalized)
+     */
+    private static Object readValueOf(final JsonProvider provider, final Object value) {
+        final Object results = provider.createArray();
+        provider.setArrayIndex(results, 0, value);
+        return provider.getArrayIndex(results, 0);
+    }
+
+    // null for json null
+    private static String stringValueOf(final Object value) {
+        return Optional.ofNullable(value)
                        .map(Object::toString)
                        .filter(JsonReader::isNotNullValue)
-                       .map(JsonReader::dismissStringMarks);
+                       .map(JsonReader::dismissStringMarks)
+                       .orElse(null);
     }
 
     private static boolean isNotNullValue(final String value) {
@@ -54,7 +134,7 @@ public class JsonReader {
 
     public List<String> jsonStringValues(final String path) {
         enforceLineSeparator();
-        return jsonPathContext().read(path, new ListTypeRef())
+        return jsonPathContext().read(pathCache.compiled(path), LIST_TYPE)
                                 .stream()
                                 .map(JsonReader::dismissStringMarks)
                                 .collect(Collectors.toList());
@@ -63,7 +143,7 @@ public class JsonReader {
     public Map<String, String> jsonStringsMap(final String path) {
         enforceLineSeparator();
         final Map<String, String> map= new HashMap<>();
-        jsonPathContext().read(path, new MapTypeRef()).entrySet()
+        jsonPathContext().read(pathCache.compiled(path), MAP_TYPE).entrySet()
                          .stream()
                          .map(entry->new AbstractMap.SimpleEntry<>(entry.getKey(), asStringOrNull(entry.getValue())))
                          .map(this::cleanedStringsMapEntry)
@@ -94,12 +174,31 @@ public class JsonReader {
 
     private static Configuration config() {
         final Gson gson = CustomGsonBuilder.create();
-        final JsonProvider jsonProvider = new GsonJsonProvider(gson);
-        final MappingProvider mappingProvider = new GsonMappingProvider(gson);
-        return Configuration.builder()
-                            .jsonProvider(jsonProvider)
-                            .mappingProvider(mappingProvider)
-                            .build();
+        final GsonConfiguration current = configuration;
+        if (nonNull(current) && current.gson == gson) {
+            return current.configuration;
+        }
+        final GsonConfiguration updated = new GsonConfiguration(gson);
+        configuration = updated;
+        return updated.configuration;
+    }
+
+    /**
+     * immutable JsonPath configuration of a custom gson
+     */
+    private static final class GsonConfiguration {
+        private final Gson gson;
+        private final Configuration configuration;
+
+        private GsonConfiguration(final Gson gson) {
+            final JsonProvider jsonProvider = new GsonJsonProvider(gson);
+            final MappingProvider mappingProvider = new GsonMappingProvider(gson);
+            this.gson = gson;
+            this.configuration = Configuration.builder()
+                                              .jsonProvider(jsonProvider)
+                                              .mappingProvider(mappingProvider)
+                                              .build();
+        }
     }
 
     private static class ListTypeRef extends TypeRef<List<String>> {
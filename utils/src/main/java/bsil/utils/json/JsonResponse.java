@@ -2,23 +2,23 @@ package bsil.utils.json;
 
 
 import bsil.utils.ciphering.Cipher;
+import bsil.utils.ciphering.CipheringCompression;
 import bsil.utils.ciphering.CipheringConfig;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import lombok.Synchronized;
+import bsil.utils.ciphering.CipheringExecutor;
+import bsil.utils.ciphering.CipheringRegistry;
+import bsil.utils.ciphering.CipheringKeyRing;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import javax.validation.constraints.NotNull;
 import java.io.*;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BooleanSupplier;
-import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.text.MessageFormat.format;
 import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
@@ -29,64 +29,103 @@ public final class JsonResponse implements Serializable {
     private static final long serialVersionUID = 2019032922; /* version from date and hour */
 
 
-    // optimization : init. once at load
-    // for writing json purpose only
-    private static final Pattern BAD_JSON = Pattern.compile(".*(?<badField>\"[^\"]+\":(|\\{})),.*");
-
-
     // transfered datas when uses as DTO have to be ciphered
     private final byte[] cipheredContent;
-    // for helping reading errors as Error object
-    private final boolean isError;
+    // kept as is : reading it needs neither unciphering nor parsing ; null when not an error
+    private final Error error;
+    // whose ciphering is used ; null for the ciphering set up for all
+    private final String tenantId;
+
+    // read without lock : Cipher instances are thread safe
+    private static volatile Cipher ciphering;
+    // null when json contents are unciphered at each read
+    private static volatile PlaintextCache plaintextCache;
+    // null until tenants ciphering is set up
+    private static volatile CipheringRegistry tenantsCiphering;
 
-    //synchro nized
-    private static Cipher ciphering;
-
-    @Synchronized
     public static void setupCiphering(final CipheringConfig cipheringConfig) {
         ciphering = cipheringConfig.cipheringTransformation().isPaddedAlgorithm()
                         ? Cipher.createPaddedCiphering(cipheringConfig, JsonResponse::generatePadding)
                         : Cipher.createCiphering(cipheringConfig);
     }
 
-    // for static factory calls only
-    private JsonResponse(final @NotNull Object content) {
-        final Object notNullContent = ofNullable(content).orElseThrow(() -> new CannotConvertToJson(null, "null"));
-        final String jsonContent = jsonOf(notNullContent);
-        if ("null".equals(jsonContent)) {
-            throw new CannotConvertToJson(content, "null");
-        }
-        this.cipheredContent = cipher(jsonContent);
-        this.isError = content instanceof Error;
+    /**
+     * enveloped ciphering : contents ciphered with a previous key of the ring stay readable while keys rotate
+     */
+    public static void setupCiphering(final CipheringKeyRing keyRing) {
+        ciphering = cipheringWith(keyRing);
     }
 
-    @Synchronized
-    private byte[] cipher(final String jsonContent) {
-        return ofNullable(ciphering)
-                   .map(currentCiphering -> currentCiphering.cipher(jsonContent))
-                   .orElseThrow(CipheringWasNotSetUp::new);
+    /**
+     * enveloped ciphering of compressed json : repetitive field names and values shrink before being ciphered
+     * @see CipheringCompression#trainedDictionary(java.util.Collection, int)
+     */
+    public static void setupCiphering(final CipheringKeyRing keyRing, final CipheringCompression compression) {
+        ciphering = cipheringWith(keyRing).withCompression(compression);
     }
 
+    // built before being published : concurrent setups never see each other's ciphering half set up
+    private static Cipher cipheringWith(final CipheringKeyRing keyRing) {
+        return keyRing.cipheringTransformation().isPaddedAlgorithm()
+                   ? Cipher.createPaddedCiphering(keyRing, JsonResponse::generatePadding)
+                   : Cipher.createCiphering(keyRing);
+    }
 
-    private static String jsonOf(final Object toJsonify) {
-        return ofNullable(toJsonify).flatMap(JsonResponse::tryConvertToJson)
-                                    .map(checkBadJson(toJsonify))
-                                    .orElse("");
+    /**
+     * ciphering of each tenant, with its own key : loaded on first use, then kept while used
+     * @param configs config of a tenant
+     */
+    public static void setupTenantsCiphering(final CipheringRegistry.ConfigLoader configs) {
+        setupTenantsCiphering(CipheringRegistry.ofConfigs(configs, JsonResponse::generatePadding));
     }
 
+    /**
+     * @param registry ciphering of each tenant ; padded ones must use spaces for padding
+     */
+    public static void setupTenantsCiphering(final CipheringRegistry registry) {
+        tenantsCiphering = requireNonNull(registry);
+    }
 
-    private static Optional<String> tryConvertToJson(final Object toJsonify) {
-        final String json = CustomGsonBuilder.create().toJson(requireNonNull(toJsonify));
-        return Optional.of(json);
+    // for static factory calls only
+    private JsonResponse(final String tenantId, final @NotNull Object content) {
+        final Object notNullContent = ofNullable(content).orElseThrow(() -> new CannotConvertToJson(null, "null"));
+        this.tenantId = tenantId;
+        this.cipheredContent = cipheredJsonOf(cipheringOf(tenantId), notNullContent);
+        this.error = (content instanceof Error) ? (Error) content : null;
     }
 
-    private static Function<String, String> checkBadJson(final Object toJsonify) {
-        return json -> Optional.of(json)
-                               .filter(value -> !BAD_JSON.matcher(requireNonNull(value)).matches())
-                               .orElseThrow(() -> new CannotConvertToJson(toJsonify, json));
+    private static Cipher cipheringOf(final String tenantId) {
+        if (isNull(tenantId)) {
+            return ofNullable(ciphering).orElseThrow(CipheringWasNotSetUp::new);
+        }
+        return ofNullable(tenantsCiphering).orElseThrow(CipheringWasNotSetUp::new).cipheringOf(tenantId);
+    }
+
+
+    // gson writes into the ciphering, through an UTF-8 encoder : json is never held as a whole, neither as a String
+    // nor as bytes. Fields gson could not convert are spotted while writing
+    private static byte[] cipheredJsonOf(final Cipher ciphering, final Object toJsonify) {
+        try {
+            return ciphering.cipherWritten(destination -> {
+                final DetectingJsonWriter writer = new DetectingJsonWriter(new OutputStreamWriter(destination, UTF_8));
+                CustomGsonBuilder.create().toJson(toJsonify, toJsonify.getClass(), writer);
+                writer.flush();
+                if (writer.isNullDocument()) {
+                    throw new CannotConvertToJson(toJsonify, "null");
+                }
+                final Optional<String> emptyField = writer.emptyField();
+                if (emptyField.isPresent()) {
+                    throw new CannotConvertToJson(toJsonify, emptyField);
+                }
+            });
+        }
+        catch (final IOException e) {
+            // written in memory
+            throw new UncheckedIOException(e);
+        }
     }
 
-    // for ciphering purpose only
+    // for ciphering purpose only : called once per padding length, ciphering keeping their bytes
     private static String generatePadding(final Integer len) {
         return StringUtils.repeat(" ", len);
     }
@@ -97,14 +136,47 @@ public final class JsonResponse implements Serializable {
      * @param content object to convert to json
      */
     public static JsonResponse ofObject(final Object content) {
+        return ofObject(null, content);
+    }
+
+    /**
+     * @param tenantId whose ciphering is used
+     * @see #ofObject(Object)
+     * @see #setupTenantsCiphering(CipheringRegistry.ConfigLoader)
+     */
+    public static JsonResponse ofObject(final String tenantId, final Object content) {
         if (content instanceof Throwable) {
             throw new IllegalArgumentException("Bad usage. Must use JsonResponse.ofThrowable(exception) instead.");
         }
-        return new JsonResponse(content);
+        return new JsonResponse(tenantId, content);
+    }
+
+    /**
+     * json conversion and ciphering on the shared ciphering executor, leaving the calling thread free
+     * @see #ofObject(Object)
+     */
+    public static CompletableFuture<JsonResponse> ofObjectAsync(final Object content) {
+        return ofObjectAsync(content, CipheringExecutor.shared());
+    }
+
+    /**
+     * @param executor where conversion and ciphering run ; the future fails at once when too many tasks are pending
+     * @see #ofObject(Object)
+     */
+    public static CompletableFuture<JsonResponse> ofObjectAsync(final Object content,
+                                                                final CipheringExecutor executor) {
+        return executor.supplyAsync(() -> ofObject(content));
     }
 
     public static JsonResponse ofThrowable(final Throwable exception) {
-        return new JsonResponse(Error.ofThrowable(exception));
+        return ofThrowable(null, exception);
+    }
+
+    /**
+     * @param tenantId whose ciphering is used
+     */
+    public static JsonResponse ofThrowable(final String tenantId, final Throwable exception) {
+        return new JsonResponse(tenantId, Error.ofThrowable(exception));
     }
 
     /**
@@ -113,20 +185,43 @@ public final class JsonResponse implements Serializable {
      * @param details context of error (like stackstrace in exceptions)
      */
     public static JsonResponse ofError(final String error, final String details) {
-        return new JsonResponse(new Error(error, details));
+        return ofError(null, error, details);
+    }
+
+    /**
+     * @param tenantId whose ciphering is used
+     * @see #ofError(String, String)
+     */
+    public static JsonResponse ofError(final String tenantId, final String error, final String details) {
+        return new JsonResponse(tenantId, new Error(error, details));
+    }
+
+    /**
+     * opt-in : json contents read repeatedly (logging, routing...) are unciphered once, while they are recently used
+     *  the cache does not keep responses alive : contents of collected ones are dropped
+     * @param maxBytes memory the cache may take at most, weighing json contents and their ciphered forms
+     */
+    public static void enablePlaintextCache(final long maxBytes) {
+        plaintextCache = new PlaintextCache(maxBytes);
+    }
+
+    public static void disablePlaintextCache() {
+        plaintextCache = null;
     }
 
     /**
      * @return json content as a string
      */
     public String jsonContent() {
-        return uncipher(requireNonNull(this.cipheredContent));
+        final PlaintextCache cache = plaintextCache;
+        return isNull(cache)
+                   ? uncipher()
+                   : cache.jsonOf(this, this.cipheredContent.length, this::uncipher);
     }
 
-    @Synchronized
-    private String uncipher(final byte[] cipheredContent) {
-        return ofNullable(ciphering).map(currentCiphering -> currentCiphering.uncipher(cipheredContent, String::trim))
-                                    .orElseThrow(CipheringWasNotSetUp::new);
+    // padding is removed by ciphering : json has no whitespace around to trim
+    private String uncipher() {
+        return cipheringOf(this.tenantId).uncipherChars(requireNonNull(this.cipheredContent)).toString();
     }
 
     @Override
@@ -138,15 +233,7 @@ public final class JsonResponse implements Serializable {
      * @return an error if it is an error, or empty
      */
     public Optional<Error> error() {
-        return this.isError ? Optional.of(errorFromJsonObject(jsonObjectFromJson())) : Optional.empty();
-    }
-
-    private JsonObject jsonObjectFromJson() {
-        return JsonParser.parseString(jsonContent()).getAsJsonObject();
-    }
-
-    private Error errorFromJsonObject(final JsonObject json) {
-        return new Error(json.get("error").getAsString(), json.get("details").getAsString());
+        return ofNullable(this.error);
     }
 
     private void readObject(final ObjectInputStream in)
@@ -189,35 +276,33 @@ public final class JsonResponse implements Serializable {
 
     public static class CannotConvertToJson extends RuntimeException {
         public CannotConvertToJson(final Object toJsonify, final String json) {
-            super(tryFindRootCause(toJsonify, json)
+            this(toJsonify, DetectingJsonWriter.emptyFieldOf(requireNonNull(json)));
+        }
+
+        private CannotConvertToJson(final Object toJsonify, final Optional<String> emptyField) {
+            super(tryFindRootCause(toJsonify, emptyField)
                       .orElseGet(() -> "Cannot convert the given object to json : " + toJsonify.getClass()
                                                                                                .getCanonicalName()));
         }
 
-        private static Optional<String> tryFindRootCause(final Object toJsonify, @NotNull final String json) {
-            requireNonNull(json);
+        private static Optional<String> tryFindRootCause(final Object toJsonify, final Optional<String> emptyField) {
             if (isNull(toJsonify)) {
                 return Optional.of("Cannot serialize null");
             }
             final Class<?> aClass = toJsonify.getClass();
             return Stream.of(anonymousInstanceCheck(aClass),
                              scopeLimitedObjectCheck(aClass),
-                             unkownError(aClass, json))
+                             unkownError(aClass, emptyField))
                          .filter(RootCauseChecker::checkRootCause)
                          .map(RootCauseChecker::toMessageOfRootCause)
                          .filter(value -> !value.isEmpty())
                          .findFirst();
         }
 
-        private static RootCauseChecker unkownError(final Class<?> aClass, final String json) {
-            final Matcher matcher = BAD_JSON.matcher(json);
-            final Optional<String> badField = matcher.matches()
-                                                  ? ofNullable(matcher.group("badField"))
-                                                  : Optional.empty();
+        private static RootCauseChecker unkownError(final Class<?> aClass, final Optional<String> badField) {
             return RootCauseChecker.of(badField::isPresent,
                                        () -> format("Cannot convert field {0} to json for {1}",
-                                                    badField.orElseGet(() -> "[UNKNOWN of " + json + "]"),
-                                                    aClass.getName()));
+                                                    badField.orElseThrow(), aClass.getName()));
         }
 
         private static RootCauseChecker scopeLimitedObjectCheck(final Class<?> aClass) {
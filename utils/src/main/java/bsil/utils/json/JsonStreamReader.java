@@ -0,0 +1,221 @@
+package bsil.utils.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.text.MessageFormat.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * a facade made to read values of very large json documents without building them in memory
+ *  simple paths only (fields, positive array indexes and array wildcards : $.a.b[*].c[0]) are run over the tokens
+ *  of the document : subtrees no path goes through are skipped, and reading stops once all paths are resolved
+ *  only found values are built, a value holding another path's one being built once
+ *  instances are immutable : plan paths once, then read any number of documents, from any thread
+ */
+public final class JsonStreamReader {
+
+    private static final TypeAdapter<JsonElement> ELEMENTS = new Gson().getAdapter(JsonElement.class);
+
+    private final Step root = new Step();
+    // names in given order
+    private final List<String> names;
+
+    private JsonStreamReader(final Map<String, String> pathsByName) {
+        this.names = List.copyOf(pathsByName.keySet());
+        pathsByName.forEach((name, path) -> plan(requireNonNull(name), requireNonNull(path)));
+    }
+
+    /**
+     * @param pathsByName json path of each value to read, by name of the value
+     * @throws IllegalArgumentException when a path is not simple
+     */
+    public static JsonStreamReader ofPaths(final Map<String, String> pathsByName) {
+        return new JsonStreamReader(requireNonNull(pathsByName));
+    }
+
+    /**
+     * @param json UTF-8 json document, left open
+     * @see #read(Reader)
+     */
+    public Map<String, List<String>> read(final InputStream json)
+    throws IOException {
+        return read(new InputStreamReader(json, UTF_8));
+    }
+
+    /**
+     * @param json json document, left open : reading may stop before its end
+     * @return values of each name in document order, as {@link JsonReader#jsonOrNull(String)} gives them (null for
+     *  json null) ; no value when path is missing, many through array wildcards
+     * @throws IOException when the document cannot be read, or is malformed
+     */
+    public Map<String, List<String>> read(final Reader json)
+    throws IOException {
+        final Map<String, List<String>> values = new LinkedHashMap<>();
+        this.names.forEach(name -> values.put(name, new ArrayList<>(1)));
+        final com.google.gson.stream.JsonReader in = new com.google.gson.stream.JsonReader(requireNonNull(json));
+        // open containers left are of no interest
+        walk(this.root, in, values);
+        return values;
+    }
+
+    // @return number of containers left open, once all paths under step are resolved
+    private static int walk(final Step step, final com.google.gson.stream.JsonReader in,
+                            final Map<String, List<String>> values)
+    throws IOException {
+        if (!step.names.isEmpty()) {
+            collect(step, ELEMENTS.read(in), values);
+            return 0;
+        }
+        final JsonToken token = in.peek();
+        if (JsonToken.BEGIN_OBJECT == token && !step.fields.isEmpty()) {
+            return walkObject(step, in, values);
+        }
+        if (JsonToken.BEGIN_ARRAY == token && (!step.indexes.isEmpty() || nonNull(step.wildcard))) {
+            return walkArray(step, in, values);
+        }
+        in.skipValue();
+        return 0;
+    }
+
+    private static int walkObject(final Step step, final com.google.gson.stream.JsonReader in,
+                                  final Map<String, List<String>> values)
+    throws IOException {
+        in.beginObject();
+        int pending = step.fields.size();
+        // first member of a name only, as JsonPath would find
+        final Set<String> walked = new HashSet<>();
+        while (in.hasNext()) {
+            final String name = in.nextName();
+            final Step next = step.fields.get(name);
+            if (isNull(next) || !walked.add(name)) {
+                in.skipValue();
+                continue;
+            }
+            final int open = walk(next, in, values);
+            if (0 == --pending) {
+                return open + 1;
+            }
+            close(in, open);
+        }
+        in.endObject();
+        return 0;
+    }
+
+    private static int walkArray(final Step step, final com.google.gson.stream.JsonReader in,
+                                 final Map<String, List<String>> values)
+    throws IOException {
+        in.beginArray();
+        // a wildcard is resolved at the end of the array only
+        int pending = step.indexes.size() + (isNull(step.wildcard) ? 0 : 1);
+        for (int index = 0; in.hasNext(); index++) {
+            final Step indexed = step.indexes.get(index);
+            if (isNull(indexed) && isNull(step.wildcard)) {
+                in.skipValue();
+            }
+            else if (isNull(indexed) || isNull(step.wildcard)) {
+                final int open = walk(isNull(indexed) ? step.wildcard : indexed, in, values);
+                if (nonNull(indexed) && 0 == --pending) {
+                    return open + 1;
+                }
+                close(in, open);
+            }
+            else {
+                // both paths go through this element : built once for both
+                final JsonElement element = ELEMENTS.read(in);
+                collect(indexed, element, values);
+                collect(step.wildcard, element, values);
+                pending--;
+            }
+        }
+        in.endArray();
+        return 0;
+    }
+
+    // skips what is left of open containers
+    private static void close(final com.google.gson.stream.JsonReader in, final int open)
+    throws IOException {
+        for (int closed = 0; open > closed; closed++) {
+            while (in.hasNext()) {
+                in.skipValue();
+            }
+            if (JsonToken.END_OBJECT == in.peek()) {
+                in.endObject();
+            }
+            else {
+                in.endArray();
+            }
+        }
+    }
+
+    // paths under step, in a built value
+    private static void collect(final Step step, final JsonElement element, final Map<String, List<String>> values) {
+        if (!step.names.isEmpty()) {
+            final String value = JsonReader.jsonStringOf(element);
+            step.names.forEach(name -> values.get(name).add(value));
+        }
+        if (element.isJsonObject()) {
+            final JsonObject object = element.getAsJsonObject();
+            step.fields.forEach((field, next) -> {
+                if (object.has(field)) collect(next, object.get(field), values);
+            });
+        }
+        if (element.isJsonArray()) {
+            final JsonArray array = element.getAsJsonArray();
+            step.indexes.forEach((index, next) -> {
+                if (array.size() > index) collect(next, array.get(index), values);
+            });
+            if (nonNull(step.wildcard)) {
+                array.forEach(item -> collect(step.wildcard, item, values));
+            }
+        }
+    }
+
+    private void plan(final String name, final String path) {
+        final List<Object> steps = SimplePaths.stepsOf(path).orElseThrow(() -> new IllegalArgumentException(
+            format("Only fields, indexes and wildcards can be read from a stream, not {0}", path)));
+        Step step = this.root;
+        for (final Object next : steps) {
+            if (SimplePaths.WILDCARD == next) {
+                if (isNull(step.wildcard)) step.wildcard = new Step();
+                step = step.wildcard;
+            }
+            else {
+                step = (next instanceof Integer)
+                           ? step.indexes.computeIfAbsent((Integer) next, index -> new Step())
+                           : step.fields.computeIfAbsent((String) next, field -> new Step());
+            }
+        }
+        step.names.add(name);
+    }
+
+    /**
+     * a step of paths : names of values found there, and next steps
+     */
+    private static final class Step {
+        private final List<String> names = new ArrayList<>(1);
+        private final Map<String, Step> fields = new LinkedHashMap<>();
+        private final Map<Integer, Step> indexes = new LinkedHashMap<>();
+        // null when no path goes through all items of an array
+        private Step wildcard;
+    }
+
+}
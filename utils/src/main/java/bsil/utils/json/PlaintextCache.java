@@ -0,0 +1,156 @@
+package bsil.utils.json;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.nonNull;
+
+/**
+ * recently used json contents of responses, bounded by their weight in memory
+ *  a response is weighted with its json (2 bytes by char) and its ciphered content, both being kept
+ *  lookups never lock : a found entry is only marked as used. Inserts evict entries not used since the previous
+ *  eviction first (second chance), an approximation of least recently used ones
+ *  responses are weakly held : a response no longer used elsewhere is collected, its entry being dropped next time
+ *  the cache is written to
+ *  the plain json is computed outside of any lock : two threads may compute it at once, the last one is kept
+ */
+final class PlaintextCache {
+
+    // map node, weak key, entry and strings headers
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final long maxWeight;
+    // by identity of responses
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    // keys of collected responses
+    private final ReferenceQueue<JsonResponse> collected = new ReferenceQueue<>();
+    private final AtomicLong weight = new AtomicLong();
+
+    PlaintextCache(final long maxWeight) {
+        if (0 >= maxWeight) {
+            throw new IllegalArgumentException(format("Cache weight must be positive, not {0}", maxWeight));
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    String jsonOf(final JsonResponse response, final int cipheredLength, final Supplier<String> json) {
+        final Entry cached = this.entries.get(new Lookup(response));
+        if (nonNull(cached)) {
+            // written once per eviction round at most : hits do not keep invalidating a shared cache line
+            if (!cached.used) cached.used = true;
+            return cached.json;
+        }
+        final String computed = json.get();
+        put(response, new Entry(computed, ENTRY_OVERHEAD + 2L * computed.length() + cipheredLength));
+        return computed;
+    }
+
+    long weight() {
+        purge();
+        return this.weight.get();
+    }
+
+    private void put(final JsonResponse response, final Entry entry) {
+        purge();
+        if (this.maxWeight < entry.weight) {
+            return;
+        }
+        final Key key = new Key(response, this.collected);
+        final Entry previous = this.entries.put(key, entry);
+        if (this.maxWeight < this.weight.addAndGet(entry.weight - (nonNull(previous) ? previous.weight : 0))) {
+            evict(key);
+        }
+    }
+
+    // inserts only : lookups go on while entries are evicted
+    private synchronized void evict(final Key kept) {
+        // a first round takes their second chance from used entries, a second one evicts them
+        for (int round = 0; 2 > round && this.maxWeight < this.weight.get(); round++) {
+            final Iterator<Map.Entry<Object, Entry>> entries = this.entries.entrySet().iterator();
+            while (this.maxWeight < this.weight.get() && entries.hasNext()) {
+                final Map.Entry<Object, Entry> next = entries.next();
+                final Entry entry = next.getValue();
+                if (kept.equals(next.getKey())) {
+                    continue;
+                }
+                if (entry.used) {
+                    entry.used = false;
+                }
+                else if (this.entries.remove(next.getKey(), entry)) {
+                    this.weight.addAndGet(-entry.weight);
+                }
+            }
+        }
+    }
+
+    private void purge() {
+        for (Reference<? extends JsonResponse> key = this.collected.poll(); nonNull(key); key = this.collected.poll()) {
+            final Entry entry = this.entries.remove(key);
+            if (nonNull(entry)) this.weight.addAndGet(-entry.weight);
+        }
+    }
+
+    /**
+     * a weak reference to a response, equal to another one of the same response
+     */
+    private static final class Key extends WeakReference<JsonResponse> {
+        private final int hash;
+
+        private Key(final JsonResponse response, final ReferenceQueue<JsonResponse> queue) {
+            super(response, queue);
+            this.hash = System.identityHashCode(response);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) return true;
+            final JsonResponse response = get();
+            return nonNull(response) && (other instanceof Key) && response == ((Key) other).get();
+        }
+    }
+
+    /**
+     * a response looked up, without the cost of a weak reference
+     */
+    private static final class Lookup {
+        private final JsonResponse response;
+
+        private Lookup(final JsonResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.response);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return (other instanceof Key) && this.response == ((Key) other).get();
+        }
+    }
+
+    private static final class Entry {
+        private final String json;
+        private final long weight;
+        private volatile boolean used;
+
+        private Entry(final String json, final long weight) {
+            this.json = json;
+            this.weight = weight;
+        }
+    }
+
+}
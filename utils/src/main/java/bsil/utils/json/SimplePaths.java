@@ -0,0 +1,53 @@
+package bsil.utils.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.text.MessageFormat.format;
+import static java.util.Objects.nonNull;
+
+/**
+ * parsing of simple json paths : fields, positive array indexes and array wildcards ($.a.b[0]['c'][*])
+ *  a step is a field name (String), an index (Integer) or {@link #WILDCARD}
+ */
+enum SimplePaths {;
+
+    static final Object WILDCARD = new Object();
+
+    // a step : .field, [index], [*], ['field'] or ["field"]
+    private static final Pattern STEP = Pattern.compile(
+        "\\.([^.\\[\\]*?@()$,'\" ]+)|\\[(\\d{1,9})]|\\[(\\*)]|\\['([^']+)']|\\[\"([^\"]+)\"]");
+
+    /**
+     * @return steps of the path, empty when the path is not simple or has no step
+     */
+    static Optional<List<Object>> stepsOf(final String path) {
+        final String steps = path.startsWith("$") ? path.substring(1) : path;
+        // a leading field may omit its dot, as JsonPath allows
+        final String dotted = (steps.isEmpty() || steps.startsWith(".") || steps.startsWith("["))
+                                  ? steps
+                                  : "." + steps;
+        final Matcher matcher = STEP.matcher(dotted);
+        final List<Object> parsed = new ArrayList<>();
+        int end = 0;
+        while (matcher.lookingAt()) {
+            parsed.add(stepOf(matcher));
+            end = matcher.end();
+            matcher.region(end, dotted.length());
+        }
+        return (dotted.length() != end || parsed.isEmpty()) ? Optional.empty() : Optional.of(parsed);
+    }
+
+    private static Object stepOf(final Matcher matcher) {
+        if (nonNull(matcher.group(2))) return Integer.valueOf(matcher.group(2));
+        if (nonNull(matcher.group(3))) return WILDCARD;
+        for (final int group : new int[]{1, 4, 5}) {
+            if (nonNull(matcher.group(group))) return matcher.group(group);
+        }
+        throw new IllegalStateException(format("Unknown step {0}", matcher.group()));
+    }
+
+}
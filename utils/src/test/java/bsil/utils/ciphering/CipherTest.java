@@ -8,12 +8,33 @@ import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
 import javax.crypto.NoSuchPaddingException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static bsil.utils.ciphering.Cipher.createCiphering;
 import static bsil.utils.ciphering.Cipher.createPaddedCiphering;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -23,6 +44,8 @@ public class CipherTest {
     private static final String AESKey = "MyCipheringKey!!"; // 16 chars => 128 bits
     private static final String AES_W_PADDING = "AES/ECB/PKCS5Padding";
     private static final String AES_NO_PADDING = "AES/CTR/NoPadding";
+    private static final String AES_GCM = "AES/GCM/NoPadding";
+    private static final String AES_CBC = "AES/CBC/PKCS5Padding";
     private static final int L128BITS = 128 / 8;
     private static final int L192BITS = 192 / 8;
     private static final int L256BITS = 32;
@@ -47,6 +70,24 @@ public class CipherTest {
     }
 
 
+    @Test
+    final void should_configured_ciphering_reseed_ivs_as_property_says()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupNotPaddedAESCipheringForTest();
+        assertThat(createCiphering(CipheringConfigHelper.config()).ivSource()).isSameAs(PrefetchingIvSource.shared());
+
+        SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_IV_RESEED_INTERVAL_PROPERTY, "1000");
+        try {
+            final Cipher ciphering = createCiphering(CipheringConfigHelper.config());
+            assertThat(ciphering.ivSource()).isInstanceOf(PrefetchingIvSource.class);
+            assertThat(((PrefetchingIvSource) ciphering.ivSource()).reseedInterval()).isEqualTo(1000);
+            assertThat(new String(ciphering.uncipher(ciphering.cipher("reseeded")), UTF_8)).isEqualTo("reseeded");
+        }
+        finally {
+            SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_IV_RESEED_INTERVAL_PROPERTY, null);
+        }
+    }
+
     @RepeatedTest(10)
     final void should_AES_ciphering_transformation_check_bad_key_length() {
         final int keyLength = getKeyLength(this::isNotAESLengthCondition);
@@ -107,6 +148,357 @@ public class CipherTest {
         testCiphering(ciphering, Function.identity());
     }
 
+    @Test
+    final void should_cipher_and_uncipher_concurrently_with_a_shared_ciphering()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, InterruptedException, ExecutionException {
+        setupNotPaddedAESCipheringForTest();
+        final Cipher ciphering = createCiphering(CipheringConfigHelper.config());
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; 200 > i; i++) {
+                results.add(executor.submit(() -> {
+                    final String originalString = RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(1000));
+                    return originalString.equals(ciphering.uncipher(ciphering.cipher(originalString),
+                                                                    Function.identity()));
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_NotPaddedAES_through_streams()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        setupNotPaddedAESCipheringForTest();
+        final Cipher ciphering = createCiphering(CipheringConfigHelper.config());
+        final byte[] original = RandomStringUtils.randomAlphanumeric(1_000_000).getBytes(UTF_8);
+
+        final ByteArrayOutputStream ciphered = new ByteArrayOutputStream();
+        try (final OutputStream out = ciphering.cipheringStream(ciphered)) {
+            for (int offset = 0; original.length > offset; offset += 4096) {
+                out.write(original, offset, Math.min(4096, original.length - offset));
+            }
+        }
+        final byte[] unciphered;
+        try (final InputStream in = ciphering.uncipheringStream(new ByteArrayInputStream(ciphered.toByteArray()))) {
+            unciphered = in.readAllBytes();
+        }
+
+        assertThat(unciphered).isEqualTo(original);
+        assertThat(ciphering.uncipher(ciphered.toByteArray(), Function.identity()))
+            .isEqualTo(new String(original, UTF_8));
+    }
+
+    @Test
+    final void should_uncipher_through_channel_what_was_ciphered_as_bytes()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        setupPaddedAESCipheringForTest();
+        final Cipher ciphering = createPaddedCiphering(CipheringConfigHelper.config(), len -> StringUtils.repeat(" ", len));
+        final String original = RandomStringUtils.randomAlphanumeric(10_000);
+
+        final ReadableByteChannel channel = ciphering.uncipheringChannel(
+            Channels.newChannel(new ByteArrayInputStream(ciphering.cipher(original))));
+
+        assertThat(new String(Channels.newInputStream(channel).readAllBytes(), UTF_8).trim()).isEqualTo(original);
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_between_direct_and_heap_buffers()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupNotPaddedAESCipheringForTest();
+        final Cipher ciphering = createCiphering(CipheringConfigHelper.config());
+        final byte[] original = RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(1000)).getBytes(UTF_8);
+
+        final ByteBuffer ciphered = ByteBuffer.allocateDirect(ciphering.cipheredSizeFor(original.length));
+        final int cipheredSize = ciphering.cipher(ByteBuffer.wrap(original), ciphered);
+        ciphered.flip();
+        final ByteBuffer unciphered = ByteBuffer.allocate(ciphering.uncipheredSizeFor(cipheredSize));
+        final int uncipheredSize = ciphering.uncipher(ciphered, unciphered);
+
+        assertThat(cipheredSize).isEqualTo(ciphering.cipheredSizeFor(original.length));
+        assertThat(Arrays.copyOf(unciphered.array(), uncipheredSize)).isEqualTo(original);
+    }
+
+    @Test
+    final void should_PaddedAES_buffer_ciphering_report_exact_size()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupPaddedAESCipheringForTest();
+        final Cipher ciphering = createPaddedCiphering(CipheringConfigHelper.config(), len -> StringUtils.repeat(" ", len));
+        final String original = RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(1000));
+
+        final ByteBuffer ciphered = ByteBuffer.allocate(ciphering.cipheredSizeFor(original.length()) + 10);
+        final int cipheredSize = ciphering.cipher(ByteBuffer.wrap(original.getBytes(UTF_8)), ciphered);
+
+        assertThat(cipheredSize).isEqualTo(ciphering.cipheredSizeFor(original.length()));
+        assertThat(ciphering.uncipher(Arrays.copyOf(ciphered.array(), cipheredSize), Function.identity()))
+            .isEqualTo(original);
+        assertThatThrownBy(() -> ciphering.cipher(ByteBuffer.wrap(original.getBytes(UTF_8)), ByteBuffer.allocate(1)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @RepeatedTest(10)
+    final void should_cipher_and_uncipher_AuthenticatedAES()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Cipher ciphering = createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_GCM));
+        testCiphering(ciphering, Function.identity());
+    }
+
+    @Test
+    final void should_AuthenticatedAES_never_reuse_a_nonce()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_GCM));
+        final Set<String> nonces = new HashSet<>();
+        for (int i = 0; 1000 > i; i++) {
+            nonces.add(Arrays.toString(Arrays.copyOf(ciphering.cipher("same content"), 12)));
+        }
+        assertThat(nonces).hasSize(1000);
+    }
+
+    @Test
+    final void should_AuthenticatedAES_detect_altered_content()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_GCM));
+        final byte[] ciphered = ciphering.cipher(RandomStringUtils.randomAlphanumeric(100));
+        ciphered[ciphered.length / 2] ^= 1;
+
+        assertThatThrownBy(() -> ciphering.uncipher(ciphered, Function.identity()))
+            .isInstanceOf(Cipher.TamperedCipheredContent.class);
+    }
+
+    @Test
+    final void should_uncipher_contents_of_previous_keys_after_rotation()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final String otherKey = "MyOtherCipherKey";
+        final CipheringKeyRing ring = CipheringKeyRing.ofCurrentKey(1, CipheringConfig.ofKeyAndTransformation(AESKey, AES_W_PADDING));
+        final CipheringKeyRing rotatedRing = ring.withCurrentKey(2, CipheringConfig.ofKeyAndTransformation(otherKey, AES_W_PADDING));
+        final Cipher ciphering = createPaddedCiphering(ring, len -> StringUtils.repeat(" ", len));
+        final Cipher rotatedCiphering = createPaddedCiphering(rotatedRing, len -> StringUtils.repeat(" ", len));
+
+        final byte[] before = ciphering.cipher("before rotation");
+        final byte[] after = rotatedCiphering.cipher("after rotation");
+
+        assertThat(rotatedCiphering.uncipher(before, String::trim)).isEqualTo("before rotation");
+        assertThat(rotatedCiphering.uncipher(after, String::trim)).isEqualTo("after rotation");
+        assertThat(rotatedCiphering.uncipher(before, String::trim)).isEqualTo("before rotation");
+        assertThatThrownBy(() -> ciphering.uncipher(after, String::trim))
+            .isInstanceOf(Cipher.UnreadableCipheredContent.class);
+        assertThatThrownBy(() -> createPaddedCiphering(rotatedRing.withoutKey(1), len -> StringUtils.repeat(" ", len))
+                                     .uncipher(before, String::trim))
+            .isInstanceOf(Cipher.UnreadableCipheredContent.class);
+    }
+
+    @Test
+    final void should_envelope_record_version_transformation_and_key()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        final CipheringKeyRing ring = CipheringKeyRing.ofCurrentKey(7, CipheringConfig.ofKeyAndTransformation(AESKey, AES_NO_PADDING));
+        final Cipher ciphering = createCiphering(ring);
+
+        final byte[] ciphered = ciphering.cipher("content");
+        final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (final OutputStream out = ciphering.cipheringStream(streamed)) {
+            out.write("content".getBytes(UTF_8));
+        }
+
+        assertThat(Arrays.copyOf(ciphered, 4)).containsExactly(1, 0, 2, 7);
+        assertThat(ciphered).hasSize(4 + 16 + "content".length());
+        assertThat(ciphering.uncipher(streamed.toByteArray(), Function.identity())).isEqualTo("content");
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_CBC_contents_with_their_own_iv()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final CipheringConfig config = CipheringConfig.ofKeyAndTransformation(AESKey, AES_CBC);
+        final Cipher ciphering = createPaddedCiphering(config, len -> StringUtils.repeat(" ", len));
+        final Cipher enveloped = createPaddedCiphering(CipheringKeyRing.ofCurrentKey(3, config),
+                                                       len -> StringUtils.repeat(" ", len));
+
+        final byte[] ciphered = enveloped.cipher("same content");
+
+        assertThat(Arrays.copyOf(ciphered, 4)).containsExactly(1, 0, 4, 3);
+        assertThat(ciphered).hasSize(4 + 16 + 32);
+        assertThat(enveloped.uncipher(ciphered, String::trim)).isEqualTo("same content");
+        assertThat(enveloped.cipher("same content")).isNotEqualTo(ciphered);
+        assertThat(ciphering.uncipher(ciphering.cipher("same content"), String::trim)).isEqualTo("same content");
+    }
+
+    @Test
+    final void should_not_envelope_contents_of_a_transformation_without_id()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final CipheringConfig config = CipheringConfig.ofKeyAndTransformation(AESKey, "AES/OFB/NoPadding");
+
+        assertThat(config.cipheringTransformation().hasId()).isFalse();
+        assertThatThrownBy(() -> CipheringKeyRing.ofCurrentKey(1, config))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("AES/OFB/NoPadding");
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_all_contents_keeping_their_order()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupPaddedAESCipheringForTest();
+        final Cipher ciphering = createPaddedCiphering(CipheringConfigHelper.config(), len -> StringUtils.repeat(" ", len));
+        final List<String> contents = IntStream.range(0, 5000)
+                                               .mapToObj(i -> i + RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(100)))
+                                               .collect(Collectors.toList());
+
+        final List<byte[]> ciphered = ciphering.cipherAll(contents);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertThat(ciphering.uncipherAll(ciphered, String::trim, pool)).containsExactlyElementsOf(contents);
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertThat(ciphering.uncipher(ciphered.get(42), String::trim)).isEqualTo(contents.get(42));
+    }
+
+    @Test
+    final void should_cipher_in_parallel_as_sequentially()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final byte[] iv = PrefetchingIvSource.shared().nextIv(16);
+        iv[15] = (byte) 0xF0; // counter carries over lower bytes during ciphering
+        final Cipher ciphering = createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_NO_PADDING))
+                                     .withIvSource(length -> iv.clone());
+        final String original = RandomStringUtils.randomAlphanumeric(3 * (1 << 20) + 1234);
+
+        final byte[] cipheredInParallel = ciphering.cipherInParallel(original.getBytes(UTF_8));
+
+        assertThat(cipheredInParallel).isEqualTo(ciphering.cipher(original));
+        assertThat(new String(ciphering.uncipherInParallel(cipheredInParallel), UTF_8)).isEqualTo(original);
+    }
+
+    @Test
+    final void should_not_cipher_in_parallel_without_counter_mode()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupPaddedAESCipheringForTest();
+        final Cipher ciphering = createPaddedCiphering(CipheringConfigHelper.config(), len -> StringUtils.repeat(" ", len));
+        assertThatThrownBy(() -> ciphering.cipherInParallel(new byte[100]))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    final void should_cipher_with_precomputed_keystreams_as_inline()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final byte[] iv = PrefetchingIvSource.shared().nextIv(16);
+        final Cipher inline = createCiphering(CipheringKeyRing.ofCurrentKey(
+            1, CipheringConfig.ofKeyAndTransformation(AESKey, AES_NO_PADDING))).withIvSource(length -> iv.clone());
+        try (final CipheringExecutor executor = CipheringExecutor.ofThreads(1, 10)) {
+            final Cipher ciphering = inline.withPrecomputedKeystreams(4, 64, executor);
+            // same single thread : ring is filled once this one is done
+            executor.supplyAsync(() -> "filled").join();
+
+            final byte[] ciphered = ciphering.cipher("small content");
+
+            assertThat(ciphered).isEqualTo(inline.cipher("small content"));
+            assertThat(ciphering.precomputedKeystreamsHits()).isEqualTo(1);
+            // longer than a slot : inline, neither a hit nor a miss
+            final String longContent = StringUtils.repeat("long content ", 10);
+            assertThat(ciphering.uncipher(ciphering.cipher(longContent), Function.identity())).isEqualTo(longContent);
+            assertThat(ciphering.precomputedKeystreamsHits() + ciphering.precomputedKeystreamsMisses()).isEqualTo(1);
+        }
+        final Cipher notCounterMode = createPaddedCiphering(
+            CipheringConfig.ofKeyAndTransformation(AESKey, AES_W_PADDING), len -> StringUtils.repeat(" ", len));
+        assertThatThrownBy(() -> notCounterMode.withPrecomputedKeystreams(4, 64))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    final void should_cipher_written_content_as_whole_one()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        final byte[] iv = PrefetchingIvSource.shared().nextIv(16);
+        final Cipher padded = createPaddedCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_W_PADDING),
+                                                    len -> StringUtils.repeat(" ", len));
+        final Cipher counter = createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, AES_NO_PADDING))
+                                   .withIvSource(length -> iv.clone());
+        final byte[] content = RandomStringUtils.randomAlphanumeric(3 * (1 << 20) + 17).getBytes(UTF_8);
+
+        for (final Cipher ciphering : Arrays.asList(padded, counter)) {
+            final byte[] ciphered = ciphering.cipherWritten(destination -> {
+                destination.write(content, 0, 10);
+                destination.write(content[10]);
+                destination.write(content, 11, content.length - 11);
+                // ciphering meanwhile does not disturb the written content
+                ciphering.cipherWritten(inner -> inner.write(content, 0, 100));
+            });
+
+            assertThat(ciphered).isEqualTo(ciphering.cipher(content));
+            assertThat(ciphering.uncipher(ciphering.cipherWritten(destination -> { }))).isEmpty();
+        }
+        assertThatThrownBy(() -> counter.cipherWritten(destination -> {
+            destination.write(content, 0, 10);
+            throw new IllegalArgumentException("failed");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("failed");
+        assertThat(counter.uncipher(counter.cipherWritten(destination -> destination.write(content, 0, 10))))
+            .isEqualTo(Arrays.copyOf(content, 10));
+    }
+
+    @RepeatedTest(10)
+    final void should_uncipher_only_requested_range()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = createCiphering(CipheringKeyRing.ofCurrentKey(
+            1, CipheringConfig.ofKeyAndTransformation(AESKey, AES_NO_PADDING)));
+        final String original = RandomStringUtils.randomAlphanumeric(10_000);
+        final byte[] ciphered = ciphering.cipher(original);
+        final int offset = RandomUtils.nextInt(9_000);
+        final int length = RandomUtils.nextInt(1_000);
+
+        final byte[] range = ciphering.uncipherRange(ciphered, offset, length);
+
+        assertThat(new String(range, UTF_8)).isEqualTo(original.substring(offset, offset + length));
+        assertThatThrownBy(() -> ciphering.uncipherRange(ciphered, 9_999, 2))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> ciphering.uncipherRange(ciphered, 10, -1))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> ciphering.uncipherRange(ciphered, -1, 1))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @RepeatedTest(10)
+    final void should_cipher_bytes_and_uncipher_them_without_padding()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        setupPaddedAESCipheringForTest();
+        final Cipher ciphering = createPaddedCiphering(CipheringConfigHelper.config(), len -> StringUtils.repeat(" ", len));
+        // multi-bytes chars and trailing spaces kept, padding removed
+        final String original = "\u00e9t\u00e9 " + RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(100)) + " \u20ac";
+        final byte[] originalBytes = original.getBytes(UTF_8);
+
+        final byte[] cipheredBytes = ciphering.cipher(originalBytes);
+        final byte[] cipheredChars = ciphering.cipher(new StringBuilder(original));
+
+        assertThat(cipheredBytes).isEqualTo(cipheredChars).isEqualTo(ciphering.cipher(original));
+        assertThat(cipheredBytes).hasSize((originalBytes.length / L128BITS + 2) * L128BITS);
+        assertThat(ciphering.uncipher(cipheredBytes)).isEqualTo(originalBytes);
+        assertThat(ciphering.uncipherChars(cipheredChars).toString()).isEqualTo(original);
+        assertThat(ciphering.uncipher(cipheredBytes, String::trim)).isEqualTo(original.trim());
+    }
+
+    @Test
+    final void should_cipher_with_fastest_or_configured_provider()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final CipheringTransformation fastest = CipheringTransformation.ofNameWithFastestProvider(AES_NO_PADDING);
+        SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_KEY_PROPERTY, AESKey);
+        SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_TRANSFORMATION_PROPERTY, AES_NO_PADDING);
+        SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_PROVIDER_PROPERTY, "SunJCE");
+        final CipheringConfig configured = CipheringConfigHelper.config();
+        SystemPropertiesHelper.setProperty(CipheringConfigHelper.CIPHERING_PROVIDER_PROPERTY, "");
+
+        assertThat(CipheringTransformation.ofNameWithFastestProvider(AES_NO_PADDING)).isSameAs(fastest);
+        assertThat(fastest.provider()).isNotBlank();
+        assertThat(fastest.providerChoice()).startsWith("calibrated").contains(fastest.provider());
+        testCiphering(createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, fastest)), Function.identity());
+        assertThat(configured.cipheringTransformation().provider()).isEqualTo("SunJCE");
+        assertThat(configured.cipheringTransformation().providerChoice()).isEqualTo("configured");
+        assertThat(CipheringTransformation.ofName(AES_NO_PADDING).providerChoice()).isEqualTo("default");
+        assertThatThrownBy(() -> CipheringTransformation.ofNameAndProvider(AES_NO_PADDING, "NoSuchProvider"))
+            .isInstanceOf(NoSuchAlgorithmException.class);
+    }
+
     private void testCiphering(final Cipher ciphering, final Function<String,String> finalizer) {
         //Given
         final String originalString = RandomStringUtils.randomAlphanumeric(RandomUtils.nextInt(1000));
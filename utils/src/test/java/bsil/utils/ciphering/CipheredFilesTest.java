@@ -0,0 +1,89 @@
+package bsil.utils.ciphering;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CipheredFilesTest {
+
+    private static final String AESKey = "MyCipheringKey!!";
+    private static final int WINDOW_LENGTH = 64 * 1024;
+
+    private Path original;
+    private Path ciphered;
+    private Path unciphered;
+
+    @BeforeEach
+    final void createFiles()
+    throws IOException {
+        this.original = Files.createTempFile("original", ".txt");
+        this.ciphered = Files.createTempFile("ciphered", ".bin");
+        this.unciphered = Files.createTempFile("unciphered", ".txt");
+        // not a multiple of window length nor block size
+        Files.write(this.original, RandomStringUtils.randomAlphanumeric(10 * WINDOW_LENGTH + 1234).getBytes(UTF_8));
+    }
+
+    @AfterEach
+    final void deleteFiles()
+    throws IOException {
+        Files.deleteIfExists(this.original);
+        Files.deleteIfExists(this.ciphered);
+        Files.deleteIfExists(this.unciphered);
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_files_window_by_window_in_CTR()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, "AES/CTR/NoPadding"));
+
+        testFilesCiphering(ciphering, 16);
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_files_window_by_window_with_padding()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        final CipheringKeyRing ring = CipheringKeyRing.ofCurrentKey(
+            3, CipheringConfig.ofKeyAndTransformation(AESKey, "AES/ECB/PKCS5Padding"));
+        final Cipher ciphering = Cipher.createPaddedCiphering(ring, len -> StringUtils.repeat(" ", len));
+
+        testFilesCiphering(ciphering, 4 + 16 - (int) (Files.size(this.original) % 16));
+    }
+
+    @Test
+    final void should_cipher_and_uncipher_empty_files()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, IOException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, "AES/CTR/NoPadding"));
+        Files.write(this.original, new byte[0]);
+
+        testFilesCiphering(ciphering, 16);
+    }
+
+    private void testFilesCiphering(final Cipher ciphering, final int cipheringOverhead)
+    throws IOException {
+        final CipheredFiles files = CipheredFiles.of(ciphering).withWindowLength(WINDOW_LENGTH);
+
+        final CipheredFiles.Throughput throughput = files.cipher(this.original, this.ciphered);
+        files.uncipher(this.ciphered, this.unciphered);
+
+        assertThat(throughput.readBytes()).isEqualTo(Files.size(this.original));
+        assertThat(throughput.writtenBytes()).isEqualTo(Files.size(this.original) + cipheringOverhead)
+                                             .isEqualTo(Files.size(this.ciphered));
+        assertThat(Files.readAllBytes(this.unciphered)).isEqualTo(Files.readAllBytes(this.original));
+        try (final InputStream in = ciphering.uncipheringStream(Files.newInputStream(this.ciphered))) {
+            assertThat(in.readAllBytes()).isEqualTo(Files.readAllBytes(this.original));
+        }
+    }
+
+}
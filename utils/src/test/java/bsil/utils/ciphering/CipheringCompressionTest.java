@@ -0,0 +1,134 @@
+package bsil.utils.ciphering;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.io.ByteArrayInputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CipheringCompressionTest {
+
+    private static final String AESKey = "MyCipheringKey!!";
+    private static final int FLAGS_INDEX = 1;
+
+    private static String jsonSample(final int index) {
+        return "{\"id\":" + index + ",\"status\":\"ACTIVE\",\"customerName\":\"customer " + index
+               + "\",\"addresses\":[{\"street\":\"main street\",\"city\":\"Paris\"}]}";
+    }
+
+    private static Cipher paddedCipheringOfRing()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        return Cipher.createPaddedCiphering(
+            CipheringKeyRing.ofCurrentKey(1, CipheringConfig.ofKeyAndTransformation(AESKey, "AES/ECB/PKCS5Padding")),
+            len -> StringUtils.repeat(" ", len));
+    }
+
+    @Test
+    final void should_compress_with_trained_dictionary_then_cipher()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final List<String> samples = IntStream.range(0, 100).mapToObj(CipheringCompressionTest::jsonSample)
+                                              .collect(Collectors.toList());
+        final byte[] dictionary = CipheringCompression.trainedDictionary(samples, 1024);
+        final Cipher ciphering = paddedCipheringOfRing();
+        final Cipher compressing = ciphering.withCompression(CipheringCompression.ofThreshold(64)
+                                                                                 .withDictionary(dictionary));
+        final String content = jsonSample(1234);
+
+        final byte[] compressed = compressing.cipher(content);
+
+        assertThat(dictionary).isNotEmpty().hasSizeLessThanOrEqualTo(1024);
+        assertThat(compressed[FLAGS_INDEX]).isEqualTo(CipheringEnvelope.COMPRESSED);
+        assertThat(compressed.length).isLessThan(ciphering.cipher(content).length / 2);
+        assertThat(compressing.uncipherChars(compressed).toString()).isEqualTo(content);
+        assertThat(compressing.uncipher(compressed, String::trim)).isEqualTo(content);
+    }
+
+    @Test
+    final void should_compress_without_dictionary_when_none_could_be_trained()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final byte[] dictionary = CipheringCompression.trainedDictionary(List.of("{\"id\":1}"), 1024);
+        final Cipher compressing = paddedCipheringOfRing().withCompression(CipheringCompression.ofThreshold(64)
+                                                                                               .withDictionary(dictionary));
+        final String content = jsonSample(1) + jsonSample(2);
+
+        final byte[] compressed = compressing.cipher(content);
+
+        assertThat(dictionary).isEmpty();
+        assertThat(compressed[FLAGS_INDEX]).isEqualTo(CipheringEnvelope.COMPRESSED);
+        assertThat(paddedCipheringOfRing().uncipherChars(compressed).toString()).isEqualTo(content);
+    }
+
+    @Test
+    final void should_refuse_contents_inflating_beyond_max_length()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final CipheringCompression compression = CipheringCompression.ofThreshold(64);
+        final Cipher compressing = paddedCipheringOfRing().withCompression(compression);
+        final String content = StringUtils.repeat("a", 100_000);
+        final byte[] compressed = compressing.cipher(content);
+
+        assertThat(compressed.length).isLessThan(1_000);
+        assertThat(compressing.withCompression(compression.withMaxInflatedLength(100_000)).uncipherChars(compressed)
+                              .toString()).isEqualTo(content);
+        assertThatThrownBy(() -> compressing.withCompression(compression.withMaxInflatedLength(99_999))
+                                            .uncipherChars(compressed))
+            .isInstanceOf(Cipher.UnreadableCipheredContent.class)
+            .hasMessageContaining("inflates beyond");
+    }
+
+    @Test
+    final void should_not_compress_below_threshold_nor_without_gain()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher compressing = paddedCipheringOfRing().withCompression(CipheringCompression.ofThreshold(64));
+        final String small = "{\"id\":1}";
+        final String random = RandomStringUtils.randomAscii(100);
+
+        assertThat(compressing.cipher(small)[FLAGS_INDEX]).isEqualTo(CipheringEnvelope.NO_FLAGS);
+        assertThat(compressing.cipher(random)[FLAGS_INDEX]).isEqualTo(CipheringEnvelope.NO_FLAGS);
+        assertThat(compressing.uncipherChars(compressing.cipher(small)).toString()).isEqualTo(small);
+        // compressed contents are readable by a ciphering not compressing, when no dictionary was used
+        assertThat(paddedCipheringOfRing().uncipherChars(compressing.cipher(jsonSample(1) + jsonSample(2))).toString())
+            .isEqualTo(jsonSample(1) + jsonSample(2));
+    }
+
+    @Test
+    final void should_read_contents_compressed_with_known_dictionaries_only()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final byte[] previous = CipheringCompression.trainedDictionary(List.of(jsonSample(1), jsonSample(2)), 512);
+        final byte[] current = CipheringCompression.trainedDictionary(List.of("{\"other\":[1,2]}", "{\"other\":[1,2]}"),
+                                                                      256);
+        final Cipher ciphering = paddedCipheringOfRing();
+        final CipheringCompression compression = CipheringCompression.ofThreshold(0);
+        final byte[] ciphered = ciphering.withCompression(compression.withDictionary(previous))
+                                         .cipher(jsonSample(5));
+
+        final Cipher rotated = ciphering.withCompression(compression.withKnownDictionary(previous)
+                                                                    .withDictionary(current));
+        final Cipher forgetting = ciphering.withCompression(compression.withDictionary(current));
+
+        assertThat(rotated.uncipherChars(ciphered).toString()).isEqualTo(jsonSample(5));
+        assertThatThrownBy(() -> forgetting.uncipherChars(ciphered))
+            .isInstanceOf(Cipher.UnreadableCipheredContent.class)
+            .hasMessageContaining("unknown dictionary");
+        assertThatThrownBy(() -> ciphering.uncipheringStream(new ByteArrayInputStream(ciphered)))
+            .isInstanceOf(Cipher.UnreadableCipheredContent.class);
+    }
+
+    @Test
+    final void should_compress_only_enveloped_contents()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher notEnveloped = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey,
+                                                                                                  "AES/CTR/NoPadding"));
+
+        assertThatThrownBy(() -> notEnveloped.withCompression(CipheringCompression.ofThreshold(0)))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+}
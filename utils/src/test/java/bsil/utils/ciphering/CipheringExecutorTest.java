@@ -0,0 +1,75 @@
+package bsil.utils.ciphering;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CipheringExecutorTest {
+
+    private static final String AESKey = "MyCipheringKey!!";
+
+    @Test
+    final void should_cipher_asynchronously()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, ExecutionException, InterruptedException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, "AES/CTR/NoPadding"));
+
+        final byte[] ciphered = ciphering.cipherAsync("content").get();
+
+        assertThat(ciphering.uncipher(ciphered, Function.identity())).isEqualTo("content");
+    }
+
+    @Test
+    final void should_reject_tasks_beyond_max_pending()
+    throws InterruptedException, ExecutionException {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final CipheringExecutor executor = CipheringExecutor.ofThreads(1, 2)) {
+            final CompletableFuture<String> running = executor.supplyAsync(() -> awaited(release, "running"));
+            final CompletableFuture<String> waiting = executor.supplyAsync(() -> awaited(release, "waiting"));
+            final CompletableFuture<String> rejected = executor.supplyAsync(() -> "rejected");
+
+            assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+            release.countDown();
+            assertThat(running.get()).isEqualTo("running");
+            assertThat(waiting.get()).isEqualTo("waiting");
+            // permits are given back once tasks are done
+            assertThat(executor.supplyAsync(() -> "accepted").get()).isEqualTo("accepted");
+        }
+    }
+
+    @Test
+    final void should_run_on_virtual_threads_only_when_available() {
+        final CipheringExecutor executor = CipheringExecutor.ofVirtualThreads(10);
+        final boolean available = 21 <= Runtime.version().feature();
+
+        assertThat(executor.isOnVirtualThreads()).isEqualTo(available);
+        assertThat(executor.supplyAsync(() -> "done").join()).isEqualTo("done");
+        executor.close();
+        // threads outlive tasks : what a ciphering keeps by thread is reused
+        final CipheringExecutor oneThread = CipheringExecutor.ofVirtualThreads(1, 10);
+        final Thread first = oneThread.supplyAsync(Thread::currentThread).join();
+        assertThat(oneThread.supplyAsync(Thread::currentThread).join()).isSameAs(first);
+        oneThread.close();
+        assertThatThrownBy(() -> CipheringExecutor.shared().close()).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static String awaited(final CountDownLatch latch, final String result) {
+        try {
+            latch.await();
+            return result;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package bsil.utils.ciphering;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CipheringProcessorTest {
+
+    private static final String AESKey = "MyCipheringKey!!";
+
+    @Test
+    final void should_cipher_chunks_as_ciphering_streams_do()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey,
+                                                                                               "AES/CTR/NoPadding"));
+        final String original = RandomStringUtils.randomAlphanumeric(100_000);
+
+        final byte[] ciphered = processed(CipheringProcessor.ciphering(ciphering).withBatchLength(4096),
+                                          original.getBytes(UTF_8), 777);
+
+        assertThat(ciphered).hasSize(16 + 100_000);
+        assertThat(ciphering.uncipher(ciphered, Function.identity())).isEqualTo(original);
+    }
+
+    @Test
+    final void should_cipher_then_uncipher_chunks_with_padding()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = Cipher.createPaddedCiphering(
+            CipheringKeyRing.ofCurrentKey(2, CipheringConfig.ofKeyAndTransformation(AESKey, "AES/ECB/PKCS5Padding")),
+            len -> StringUtils.repeat(" ", len));
+        final String original = RandomStringUtils.randomAlphanumeric(50_000);
+
+        final byte[] ciphered = processed(CipheringProcessor.ciphering(ciphering).withBatchLength(1000),
+                                          original.getBytes(UTF_8), 333);
+        final byte[] unciphered = processed(CipheringProcessor.unciphering(ciphering).withBatchLength(1000),
+                                            ciphered, 100);
+
+        assertThat(new String(unciphered, UTF_8)).isEqualTo(original);
+    }
+
+    @Test
+    final void should_cipher_each_content_as_a_whole()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey,
+                                                                                               "AES/GCM/NoPadding"));
+        final Flow.Processor<String, byte[]> cipheringContents = CipheringProcessor.ofContents(ciphering);
+        final Flow.Processor<byte[], String> uncipheringContents = CipheringProcessor.ofCipheredContents(ciphering);
+        final List<String> received = new ArrayList<>();
+        final CompletableFuture<List<String>> done = new CompletableFuture<>();
+
+        try (final SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(cipheringContents);
+            cipheringContents.subscribe(uncipheringContents);
+            uncipheringContents.subscribe(new OneByOneSubscriber<>(received::add, () -> done.complete(received),
+                                                                   done::completeExceptionally));
+            List.of("first", "second", "third").forEach(publisher::submit);
+        }
+
+        assertThat(done.join()).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    final void should_fail_on_truncated_ciphered_content()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringKeyRing.ofCurrentKey(
+            1, CipheringConfig.ofKeyAndTransformation(AESKey, "AES/CTR/NoPadding")));
+
+        assertThatThrownBy(() -> processed(CipheringProcessor.unciphering(ciphering), new byte[3], 1))
+            .hasCauseInstanceOf(Cipher.UnreadableCipheredContent.class);
+    }
+
+    @Test
+    final void should_signal_completion_once_after_subscription_when_subscribed_while_completing()
+    throws NoSuchAlgorithmException, NoSuchPaddingException, InterruptedException {
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey,
+                                                                                               "AES/CTR/NoPadding"));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; 2000 > i; i++) {
+                assertSignalsWhenSubscribedWhileCompleting(CipheringProcessor.ofContents(ciphering), executor);
+                assertSignalsWhenSubscribedWhileCompleting(CipheringProcessor.ciphering(ciphering), executor);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void assertSignalsWhenSubscribedWhileCompleting(final Flow.Processor<?, ?> processor,
+                                                                   final ExecutorService executor) {
+        final List<String> signals = new CopyOnWriteArrayList<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        final CompletableFuture<?> completing = CompletableFuture.runAsync(() -> {
+            awaitQuietly(start);
+            processor.onComplete();
+        }, executor);
+        final CompletableFuture<?> subscribing = CompletableFuture.runAsync(() -> {
+            awaitQuietly(start);
+            processor.subscribe(new Flow.Subscriber<Object>() {
+                @Override
+                public void onSubscribe(final Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                    // recorded once returning : a completion overtaking subscription would come first
+                    LockSupport.parkNanos(50_000);
+                    signals.add("onSubscribe");
+                }
+
+                @Override
+                public void onNext(final Object item) {
+                    signals.add("onNext");
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                    signals.add("onError");
+                }
+
+                @Override
+                public void onComplete() {
+                    signals.add("onComplete");
+                }
+            });
+        }, executor);
+        start.countDown();
+        CompletableFuture.allOf(completing, subscribing).join();
+
+        assertThat(signals).startsWith("onSubscribe").endsWith("onComplete")
+                           .containsOnlyOnce("onSubscribe", "onComplete").doesNotContain("onError");
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // publishes content by chunks through processor, to a subscriber requesting them one by one
+    private static byte[] processed(final CipheringProcessor processor, final byte[] bytes, final int chunkLength) {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final CompletableFuture<byte[]> done = new CompletableFuture<>();
+        try (final SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            processor.subscribe(new OneByOneSubscriber<>(chunk -> received.write(chunk.array(), chunk.position(),
+                                                                                 chunk.remaining()),
+                                                         () -> done.complete(received.toByteArray()),
+                                                         done::completeExceptionally));
+            for (int from = 0; bytes.length > from; from += chunkLength) {
+                publisher.submit(ByteBuffer.wrap(bytes, from, Math.min(chunkLength, bytes.length - from)));
+            }
+        }
+        return done.join();
+    }
+
+    private static final class OneByOneSubscriber<T> implements Flow.Subscriber<T> {
+        private final Consumer<T> onItem;
+        private final Runnable onEnd;
+        private final Consumer<Throwable> onFailure;
+        private Flow.Subscription subscription;
+
+        private OneByOneSubscriber(final Consumer<T> onItem, final Runnable onEnd,
+                                   final Consumer<Throwable> onFailure) {
+            this.onItem = onItem;
+            this.onEnd = onEnd;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final T item) {
+            this.onItem.accept(item);
+            this.subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.onFailure.accept(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.onEnd.run();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package bsil.utils.ciphering;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidKeyException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CipheringRegistryTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    final void should_load_ciphering_of_tenant_once() {
+        final CipheringRegistry registry = registryOf(10, Duration.ofMinutes(1));
+
+        final Cipher first = registry.cipheringOf("first");
+
+        assertThat(registry.cipheringOf("first")).isSameAs(first);
+        assertThat(registry.cipheringOf("second")).isNotSameAs(first);
+        assertThat(registry.hits()).isEqualTo(1);
+        assertThat(registry.misses()).isEqualTo(2);
+        assertThat(first.uncipher(first.cipher("content"), Function.identity())).isEqualTo("content");
+    }
+
+    @Test
+    final void should_evict_least_recently_used_tenant_beyond_max_tenants() {
+        final CipheringRegistry registry = registryOf(2, Duration.ofMinutes(1));
+        final Cipher first = registry.cipheringOf("first");
+        this.now.addAndGet(Duration.ofSeconds(1).toNanos());
+        registry.cipheringOf("second");
+        this.now.addAndGet(Duration.ofSeconds(1).toNanos());
+        registry.cipheringOf("first");
+        this.now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        registry.cipheringOf("third");
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.evictions()).isEqualTo(1);
+        assertThat(registry.cipheringOf("first")).isSameAs(first);
+        registry.cipheringOf("second");
+        assertThat(registry.misses()).isEqualTo(4);
+    }
+
+    @Test
+    final void should_evict_idle_tenants() {
+        final CipheringRegistry registry = registryOf(10, Duration.ofSeconds(10));
+        final Cipher first = registry.cipheringOf("first");
+        this.now.addAndGet(Duration.ofSeconds(6).toNanos());
+        registry.cipheringOf("second");
+        this.now.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        assertThat(registry.cipheringOf("second")).isNotNull();
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.evictions()).isEqualTo(1);
+        assertThat(registry.cipheringOf("first")).isNotSameAs(first);
+    }
+
+    @Test
+    final void should_release_engines_held_by_threads_for_an_evicted_tenant()
+    throws InterruptedException, ExecutionException {
+        final CipheringRegistry registry = registryOf(10, Duration.ofSeconds(10));
+        final Cipher first = registry.cipheringOf("first");
+        final ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            final byte[] ciphered = worker.submit(() -> first.cipher("content")).get();
+            assertThat(first.uncipher(ciphered, Function.identity())).isEqualTo("content");
+            assertThat(first.heldEngines()).isEqualTo(2);
+            this.now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+            registry.cipheringOf("second");
+
+            assertThat(registry.evictions()).isEqualTo(1);
+            assertThat(first.heldEngines()).isZero();
+            // still usable by contents being processed, without holding engines again
+            assertThat(worker.submit(() -> first.uncipher(first.cipher("content"), Function.identity())).get())
+                .isEqualTo("content");
+            assertThat(first.heldEngines()).isZero();
+        }
+        finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    final void should_release_engines_of_an_invalidated_tenant() {
+        final CipheringRegistry registry = registryOf(10, Duration.ofMinutes(1));
+        final Cipher first = registry.cipheringOf("first");
+        first.cipher("content");
+
+        registry.invalidate("first");
+
+        assertThat(first.heldEngines()).isZero();
+        assertThat(registry.cipheringOf("first")).isNotSameAs(first);
+    }
+
+    @Test
+    final void should_load_again_an_idle_tenant_not_swept_yet() {
+        final CipheringRegistry registry = registryOf(10, Duration.ofSeconds(80));
+        final Cipher first = registry.cipheringOf("first");
+        // sweeps are due every 10 seconds
+        this.now.addAndGet(Duration.ofSeconds(9).toNanos());
+        registry.cipheringOf("second");
+        this.now.addAndGet(Duration.ofSeconds(72).toNanos());
+
+        assertThat(registry.cipheringOf("first")).isNotSameAs(first);
+        assertThat(registry.evictions()).isEqualTo(1);
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    final void should_keep_every_tenant_used_concurrently_within_bound()
+    throws InterruptedException {
+        final CipheringRegistry registry = registryOf(50, Duration.ofMinutes(1));
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; threads.length > t; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; 10_000 > i; i++) {
+                    final String tenantId = "tenant-" + (i % 40);
+                    assertThat(registry.cipheringOf(tenantId)).isNotNull();
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(registry.size()).isEqualTo(40);
+        assertThat(registry.evictions()).isZero();
+        assertThat(registry.hits() + registry.misses()).isEqualTo(40_000);
+    }
+
+    @Test
+    final void should_fail_on_unknown_tenant() {
+        final CipheringRegistry registry = new CipheringRegistry(tenantId -> {
+            throw new InvalidKeyException("no key");
+        }, 10, Duration.ofMinutes(1), this.now::get);
+
+        assertThatThrownBy(() -> registry.cipheringOf("unknown")).isInstanceOf(CipheringRegistry.UnknownTenant.class)
+                                                                .hasMessage("Cannot load ciphering of tenant unknown")
+                                                                .hasCauseInstanceOf(InvalidKeyException.class);
+        assertThat(registry.size()).isZero();
+    }
+
+    private CipheringRegistry registryOf(final int maxTenants, final Duration idleTimeout) {
+        return new CipheringRegistry(tenantId -> Cipher.createCiphering(
+            CipheringConfig.ofKeyAndTransformation((tenantId + "-key-of-tenant").substring(0, 16), "AES/CTR/NoPadding")),
+                                     maxTenants, idleTimeout, this.now::get);
+    }
+
+}
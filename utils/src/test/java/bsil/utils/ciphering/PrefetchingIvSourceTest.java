@@ -0,0 +1,98 @@
+package bsil.utils.ciphering;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefetchingIvSourceTest {
+
+    private static final String AESKey = "MyCipheringKey!!";
+    private static final int IV_LENGTH = 16;
+
+    @Test
+    final void should_create_one_secure_random_per_thread_only()
+    throws InterruptedException {
+        //Given
+        final AtomicInteger createdRandoms = new AtomicInteger();
+        final PrefetchingIvSource ivSource = new PrefetchingIvSource(64, Long.MAX_VALUE, () -> {
+            createdRandoms.incrementAndGet();
+            return new SecureRandom();
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //When
+        for (int thread = 0; 4 > thread; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; 10_000 > i; i++) ivSource.nextIv(IV_LENGTH);
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        //Then
+        assertThat(createdRandoms.get()).isEqualTo(4);
+    }
+
+    @Test
+    final void should_prefetch_ivs_by_batch_and_reseed_at_given_interval() {
+        //Given
+        final AtomicInteger generations = new AtomicInteger();
+        final AtomicInteger reseeds = new AtomicInteger();
+        final SecureRandom random = new SecureRandom() {
+            @Override
+            public void nextBytes(final byte[] bytes) {
+                generations.incrementAndGet();
+                super.nextBytes(bytes);
+            }
+
+            @Override
+            public void reseed() {
+                reseeds.incrementAndGet();
+            }
+        };
+        final PrefetchingIvSource ivSource = new PrefetchingIvSource(10, 100, () -> random);
+
+        //When
+        final Set<String> ivs = new HashSet<>();
+        for (int i = 0; 1000 > i; i++) ivs.add(Arrays.toString(ivSource.nextIv(IV_LENGTH)));
+
+        //Then
+        assertThat(ivs).hasSize(1000);
+        assertThat(generations.get()).isEqualTo(100);
+        assertThat(reseeds.get()).isEqualTo(9);
+    }
+
+    @Test
+    final void should_ciphering_take_its_ivs_from_given_source()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        //Given
+        final AtomicInteger givenIvs = new AtomicInteger();
+        final IvSource countingSource = length -> {
+            givenIvs.incrementAndGet();
+            return PrefetchingIvSource.shared().nextIv(length);
+        };
+        final Cipher ciphering = Cipher.createCiphering(CipheringConfig.ofKeyAndTransformation(AESKey, "AES/CTR/NoPadding"))
+                                       .withIvSource(countingSource);
+
+        //When
+        for (int i = 0; 100 > i; i++) {
+            assertThat(ciphering.uncipher(ciphering.cipher("content " + i), Function.identity())).isEqualTo("content " + i);
+        }
+
+        //Then
+        assertThat(givenIvs.get()).isEqualTo(100);
+    }
+
+}
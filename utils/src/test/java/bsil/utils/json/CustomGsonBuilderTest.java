@@ -0,0 +1,102 @@
+package bsil.utils.json;
+
+import bsil.utils.ciphering.CipherTest;
+import bsil.utils.ciphering.CipheringConfigHelper;
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CustomGsonBuilderTest {
+
+    @Test
+    public void should_share_gson_until_a_converter_is_set_up() {
+        final Gson before = CustomGsonBuilder.create();
+        assertThat(CustomGsonBuilder.create()).isSameAs(before);
+
+        CustomGsonBuilder.setupJsonConverterForClass(celsius -> celsius.degrees + " celsius", Celsius.class);
+        final Gson after = CustomGsonBuilder.create();
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.toJson(new Celsius(20))).isEqualTo("\"20 celsius\"");
+        // set up once only : the first converter stays
+        CustomGsonBuilder.setupJsonConverterForClass(celsius -> "overridden", Celsius.class);
+        assertThat(CustomGsonBuilder.create()).isSameAs(after);
+    }
+
+    @Test
+    public void should_change_shared_gson_through_its_builder()
+    throws NoSuchAlgorithmException, NoSuchPaddingException {
+        CipherTest.setupPaddedAESCipheringForTest();
+        JsonResponse.setupCiphering(CipheringConfigHelper.config());
+        final Gson before = CustomGsonBuilder.create();
+
+        CustomGsonBuilder.configure(builder -> builder.registerTypeAdapter(Kelvin.class, (JsonSerializer<Kelvin>)
+            (kelvin, type, context) -> new JsonPrimitive(kelvin.degrees + " kelvin")));
+
+        assertThat(CustomGsonBuilder.create()).isNotSameAs(before);
+        assertThat(CustomGsonBuilder.create()).isSameAs(CustomGsonBuilder.create());
+        assertThat(JsonResponse.ofObject(new Kelvin(293)).jsonContent()).isEqualTo("\"293 kelvin\"");
+    }
+
+    @Test
+    public void should_give_configured_gson_while_it_is_created_concurrently()
+    throws InterruptedException, ExecutionException {
+        final AtomicBoolean configuring = new AtomicBoolean(true);
+        final ExecutorService creator = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> creating = creator.submit(() -> {
+                while (configuring.get()) {
+                    CustomGsonBuilder.create().toJson(new Fahrenheit(68));
+                }
+            });
+            for (int round = 0; 200 > round; round++) {
+                final String configured = "round " + round;
+                CustomGsonBuilder.configure(builder -> builder.registerTypeAdapter(Fahrenheit.class,
+                    (JsonSerializer<Fahrenheit>) (fahrenheit, type, context) -> new JsonPrimitive(configured)));
+
+                assertThat(CustomGsonBuilder.create().toJson(new Fahrenheit(68))).isEqualTo('"' + configured + '"');
+            }
+            configuring.set(false);
+            creating.get();
+        }
+        finally {
+            creator.shutdownNow();
+        }
+    }
+
+    private static final class Fahrenheit {
+        private final int degrees;
+
+        private Fahrenheit(final int degrees) {
+            this.degrees = degrees;
+        }
+    }
+
+    private static final class Kelvin {
+        private final int degrees;
+
+        private Kelvin(final int degrees) {
+            this.degrees = degrees;
+        }
+    }
+
+    private static final class Celsius {
+        private final int degrees;
+
+        private Celsius(final int degrees) {
+            this.degrees = degrees;
+        }
+    }
+
+}
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.Test;
 
 import javax.crypto.NoSuchPaddingException;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static bsil.utils.json.JsonTestsObjects.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -110,6 +112,78 @@ public class JsonReaderTest {
 
     }
 
+    @Test
+    public void should_compile_known_paths_once() {
+        final String json = JsonResponse.ofObject(new ContainingObject(new ListObject())).jsonContent();
+        try {
+            JsonReader.setupPathCache(2);
+
+            assertThat(new JsonReader(json).jsonOrNull("fields[4]")).isEqualTo(ONE_MORE_FIELD);
+            assertThat(new JsonReader(json).jsonOrNull("fields[4]")).isEqualTo(ONE_MORE_FIELD);
+            assertThat(new JsonReader(json).jsonList("fields[1].list")).contains(FIELD_2);
+            assertThat(new JsonReader(json).jsonOrNull("fields[1].list[2]")).isEqualTo(FIELD_2);
+
+            final JsonPathCache pathCache = JsonReader.pathCache();
+            assertThat(pathCache.hits()).isEqualTo(1);
+            assertThat(pathCache.misses()).isEqualTo(3);
+            assertThat(pathCache.evictions()).isEqualTo(1);
+            assertThat(pathCache.size()).isEqualTo(2);
+            assertThat(pathCache.hitRate()).isEqualTo(0.25);
+            // the path used again is the one kept
+            assertThat(new JsonReader(json).jsonOrNull("fields[4]")).isEqualTo(ONE_MORE_FIELD);
+            assertThat(pathCache.hits()).isEqualTo(2);
+        }
+        finally {
+            JsonReader.setupPathCache(JsonPathCache.DEFAULT_MAX_PATHS);
+        }
+    }
 
+    @Test
+    public void should_extract_all_paths_as_read_one_by_one() {
+        final String json = JsonResponse.ofObject(new ContainingObject(new MapObject())).jsonContent();
+        final JsonReader jsonReader = new JsonReader(json);
+        final Map<String, String> pathsByName = new LinkedHashMap<>();
+        pathsByName.put("null", "fields[1].field0");
+        pathsByName.put("int", "$.fields[1].field1");
+        pathsByName.put("array", "fields[1]['field2']");
+        pathsByName.put("in array", "fields[1].field2[2]");
+        pathsByName.put("double", "fields[1].field3");
+        pathsByName.put("string", "$['fields'][1][\"field4\"]");
+        pathsByName.put("object", "fields[1]");
+        pathsByName.put("deep scan", "$..field4");
+
+        final ExtractionPlan plan = ExtractionPlan.of(pathsByName);
+        final Map<String, String> extracted = jsonReader.extract(plan);
+
+        assertThat(plan.unplannedPaths()).containsOnlyKeys("deep scan");
+        assertThat(extracted.keySet()).containsExactlyElementsOf(pathsByName.keySet());
+        pathsByName.forEach((name, path) -> assertThat(extracted.get(name)).as(path)
+                                                                           .isEqualTo(jsonReader.jsonOrNull(path)));
+        assertThat(extracted).containsEntry("in array", FIELD_2).containsEntry("double", "3.0");
+        assertThat(jsonReader.extract(Map.of("missing", "fields[1].field9", "out of array", "fields[9]")))
+            .containsEntry("missing", null)
+            .containsEntry("out of array", null);
+    }
+
+    @Test
+    public void should_extract_values_formatted_as_read_one_by_one() {
+        final String json = "{\"escaped\":\"x\\\"y\",\"exponent\":1e3,\"decimal\":1.50,\"true\":true,"
+                            + "\"nested\":{\"escaped\":\"q\\\"r\",\"exponent\":2e1},\"array\":[1,\"z\"]}";
+        final JsonReader jsonReader = new JsonReader(json);
+        final Map<String, String> pathsByName = new LinkedHashMap<>();
+        for (final String path : new String[]{"escaped", "exponent", "decimal", "true", "nested", "nested.escaped",
+                                              "nested.exponent", "array", "array[1]"}) {
+            pathsByName.put(path, "$." + path);
+        }
+
+        final Map<String, String> extracted = jsonReader.extract(pathsByName);
+
+        pathsByName.forEach((name, path) -> assertThat(extracted.get(name)).as(path)
+                                                                           .isEqualTo(jsonReader.jsonOrNull(path)));
+        assertThat(extracted).containsEntry("escaped", "x\\\"y")
+                             .containsEntry("exponent", "1000")
+                             .containsEntry("decimal", "1.5")
+                             .containsEntry("nested.exponent", "20");
+    }
 
 }
@@ -1,10 +1,17 @@
 package bsil.utils.json;
 
 import bsil.utils.ciphering.CipherTest;
+import bsil.utils.ciphering.CipheringConfig;
 import bsil.utils.ciphering.CipheringConfigHelper;
+import bsil.utils.ciphering.CipheringRegistry.UnknownTenant;
 import bsil.utils.json.JsonResponse.CannotConvertToJson;
 import bsil.utils.json.JsonTestsObjects.MyComplexClass;
 import bsil.utils.json.JsonTestsObjects.MyInterface;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.jupiter.api.BeforeAll;
@@ -12,6 +19,10 @@ import org.junit.jupiter.api.Test;
 
 import javax.crypto.NoSuchPaddingException;
 import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.security.NoSuchAlgorithmException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -49,6 +60,100 @@ public class JsonResponseTest {
 
     }
 
+    @Test
+    public void should_convert_and_cipher_objects_asynchronously() {
+        final MyComplexClass sourceObject = new MyComplexClass();
+
+        final JsonResponse jsonResponse = JsonResponse.ofObjectAsync(sourceObject).join();
+
+        assertThat(jsonResponse.jsonContent()).isEqualTo(JsonResponse.ofObject(sourceObject).jsonContent());
+        assertThatThrownBy(() -> JsonResponse.ofObjectAsync(new RuntimeException()).join())
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void should_uncipher_json_once_while_cached() {
+        final JsonResponse first = JsonResponse.ofObject(new MyComplexClass());
+        final JsonResponse second = JsonResponse.ofObject(new MyComplexClass());
+        try {
+            // room for one response only : its json (2 bytes by char), ciphered content and overhead
+            JsonResponse.enablePlaintextCache(first.jsonContent().length() * 4L + 200);
+
+            final String firstJson = first.jsonContent();
+            assertThat(first.jsonContent()).isSameAs(firstJson);
+            // least recently used one is evicted
+            assertThat(second.jsonContent()).isSameAs(second.jsonContent()).isEqualTo(firstJson);
+            assertThat(first.toString()).isNotSameAs(firstJson).isEqualTo(firstJson);
+
+            JsonResponse.enablePlaintextCache(1);
+            assertThat(first.jsonContent()).isNotSameAs(first.jsonContent());
+        }
+        finally {
+            JsonResponse.disablePlaintextCache();
+        }
+        assertThat(first.jsonContent()).isNotSameAs(first.jsonContent());
+    }
+
+    @Test
+    public void should_not_keep_plaintext_of_collected_responses()
+    throws InterruptedException {
+        final PlaintextCache cache = new PlaintextCache(1_000_000);
+        cacheJsonOfUnreachableResponse(cache);
+        assertThat(cache.weight()).isPositive();
+
+        for (int attempt = 0; 0 < cache.weight() && 100 > attempt; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(cache.weight()).isZero();
+    }
+
+    private static void cacheJsonOfUnreachableResponse(final PlaintextCache cache) {
+        final JsonResponse response = JsonResponse.ofObject(new MyComplexClass());
+        cache.jsonOf(response, 0, response::jsonContent);
+    }
+
+    @Test
+    public void should_cipher_large_json_as_written() {
+        final List<MyComplexClass> sourceObjects = IntStream.range(0, 20_000)
+                                                            .mapToObj(i -> new MyComplexClass())
+                                                            .collect(Collectors.toList());
+
+        final JsonResponse jsonResponse = JsonResponse.ofObject(sourceObjects);
+
+        assertThat(jsonResponse.jsonContent()).isEqualTo(CustomGsonBuilder.create().toJson(sourceObjects));
+    }
+
+    @Test
+    public void should_keep_error_without_unciphering() {
+        final JsonResponse jsonResponse = JsonResponse.ofError("message", SOME_DETAILS_TO_KNOW);
+
+        assertThat(jsonResponse.error()).isPresent().containsSame(jsonResponse.error().get());
+        assertThat(jsonResponse.error().get().details()).isEqualTo(SOME_DETAILS_TO_KNOW);
+        assertThat(JsonResponse.ofObject(new MyComplexClass()).error()).isEmpty();
+    }
+
+    @Test
+    public void should_cipher_with_ciphering_of_tenant() {
+        JsonResponse.setupTenantsCiphering(tenantId -> {
+            if ("unknown".equals(tenantId)) {
+                throw new InvalidKeyException(tenantId);
+            }
+            return CipheringConfig.ofKeyAndTransformation((tenantId + "-key-of-tenant").substring(0, 16),
+                                                          "AES/CTR/NoPadding");
+        });
+        final MyComplexClass sourceObject = new MyComplexClass();
+
+        final JsonResponse jsonResponse = JsonResponse.ofObject("tenant", sourceObject);
+
+        assertThat(jsonResponse.jsonContent()).isEqualTo(JsonResponse.ofObject(sourceObject).jsonContent());
+        assertThat(JsonResponse.ofError("tenant", "message", SOME_DETAILS_TO_KNOW).jsonContent())
+            .contains(SOME_DETAILS_TO_KNOW);
+        assertThatThrownBy(() -> JsonResponse.ofObject("unknown", sourceObject)).isInstanceOf(UnknownTenant.class)
+                                                                               .hasMessageContaining("unknown");
+    }
+
     private JsonResponse transfering(final JsonResponse jsonResponse)
     throws IOException, ClassNotFoundException {
         /* some transfert occurs here */
@@ -129,6 +234,70 @@ public class JsonResponseTest {
                                 .hasMessage("Cannot convert scope limited object bsil.utils.json.JsonResponseTest$1MyLocalClass to json");
     }
 
+    @Test
+    public void cannot_convert_fields_written_as_empty_objects() {
+        final ThrowingCallable when = () -> JsonResponse.ofObject(new WithEmptyFields());
+
+        assertThatThrownBy(when).isInstanceOf(CannotConvertToJson.class)
+                                .hasMessage("Cannot convert field \"second\":{} to json for " + WithEmptyFields.class.getName());
+        assertThat(new CannotConvertToJson(new WithEmptyFields(), "{\"first\":{},\"second\":{},\"last\":1}"))
+            .hasMessage("Cannot convert field \"second\":{} to json for " + WithEmptyFields.class.getName());
+        // last empty field, or in strings : nothing written wrong
+        assertThat(JsonResponse.ofObject(new String[]{"\"first\":{},"}).jsonContent()).contains("first");
+        assertThat(JsonResponse.ofObject(new Object[]{new Object(), new Object()}).jsonContent()).isEqualTo("[{},{}]");
+    }
+
+    private static final class WithEmptyFields {
+        private final Object first = new Object();
+        private final Object second = new Object();
+        private final int last = 1;
+    }
+
+    @Test
+    public void cannot_convert_fields_written_without_value() {
+        final ThrowingCallable when = () -> JsonResponse.ofObject(new WithEmptyRawValue());
+
+        assertThatThrownBy(when).isInstanceOf(CannotConvertToJson.class)
+                                .hasMessage("Cannot convert field \"first\": to json for " + WithEmptyRawValue.class.getName());
+    }
+
+    private static final class WithEmptyRawValue {
+        private final EmptyRaw first = new EmptyRaw();
+        private final int last = 1;
+    }
+
+    @JsonAdapter(EmptyRawAdapter.class)
+    private static final class EmptyRaw {
+    }
+
+    private static final class EmptyRawAdapter extends TypeAdapter<EmptyRaw> {
+        @Override
+        public void write(final JsonWriter out, final EmptyRaw value)
+        throws IOException {
+            out.jsonValue("");
+        }
+
+        @Override
+        public EmptyRaw read(final JsonReader in) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void cannot_convert_fields_written_as_empty_objects_reported_with_escaped_names() {
+        final ThrowingCallable when = () -> JsonResponse.ofObject(new WithEscapedEmptyField());
+
+        assertThatThrownBy(when).isInstanceOf(CannotConvertToJson.class)
+                                .hasMessage("Cannot convert field \"say \\\"hi\\\"\\u003d\\\\o/\":{} to json for "
+                                            + WithEscapedEmptyField.class.getName());
+    }
+
+    private static final class WithEscapedEmptyField {
+        @SerializedName("say \"hi\"=\\o/")
+        private final Object greeting = new Object();
+        private final int last = 1;
+    }
+
     @Test
     public void cannot_convert_null_object() {
         assertThatThrownBy(()->JsonResponse.ofObject(null)).isInstanceOf(CannotConvertToJson.class);
@@ -0,0 +1,105 @@
+package bsil.utils.json;
+
+import bsil.utils.json.JsonTestsObjects.*;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static bsil.utils.json.JsonTestsObjects.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonStreamReaderTest {
+
+    @Test
+    public void should_read_definite_paths_as_json_reader()
+    throws IOException {
+        final String json = CustomGsonBuilder.create().toJson(new ContainingObject(new MapObject()));
+        final JsonReader jsonReader = new JsonReader(json);
+        final Map<String, String> pathsByName = new LinkedHashMap<>();
+        pathsByName.put("null", "fields[1].field0");
+        pathsByName.put("int", "$.fields[1].field1");
+        pathsByName.put("array", "fields[1]['field2']");
+        pathsByName.put("in array", "fields[1].field2[2]");
+        pathsByName.put("double", "fields[1].field3");
+        pathsByName.put("object", "fields[1]");
+        pathsByName.put("last", "fields[4]");
+
+        final Map<String, List<String>> values = JsonStreamReader.ofPaths(pathsByName)
+                                                                 .read(new ByteArrayInputStream(json.getBytes(UTF_8)));
+
+        assertThat(values.keySet()).containsExactlyElementsOf(pathsByName.keySet());
+        pathsByName.forEach((name, path) -> assertThat(values.get(name)).as(path)
+                                                                       .containsExactly(jsonReader.jsonOrNull(path)));
+    }
+
+    @Test
+    public void should_format_values_as_json_reader()
+    throws IOException {
+        final String json = "{\"escaped\":\"x\\\"y\",\"exponent\":1e3,\"decimal\":1.50,\"big\":12345678901234567890,"
+                            + "\"nested\":{\"escaped\":\"q\\\"r\",\"exponent\":2e1},\"array\":[1.0,\"z\"],\"null\":null}";
+        final JsonReader jsonReader = new JsonReader(json);
+        final Map<String, String> pathsByName = new LinkedHashMap<>();
+        for (final String path : new String[]{"escaped", "exponent", "decimal", "big", "nested", "nested.escaped",
+                                              "nested.exponent", "array", "array[0]", "array[1]", "null"}) {
+            pathsByName.put(path, "$." + path);
+        }
+
+        final Map<String, List<String>> values = JsonStreamReader.ofPaths(pathsByName).read(new StringReader(json));
+
+        pathsByName.forEach((name, path) -> assertThat(values.get(name)).as(path)
+                                                                       .containsExactly(jsonReader.jsonOrNull(path)));
+        assertThat(values.get("exponent")).containsExactly("1000");
+        assertThat(values.get("escaped")).containsExactly("x\\\"y");
+    }
+
+    @Test
+    public void should_read_all_items_through_wildcards()
+    throws IOException {
+        final String json = "{\"items\":[{\"id\":1,\"tags\":[\"a\",\"b\"]},{\"id\":2},{\"tags\":[\"c\"]}],\"count\":3}";
+
+        final Map<String, List<String>> values = JsonStreamReader.ofPaths(Map.of("ids", "items[*].id",
+                                                                                 "tags", "items[*].tags[*]",
+                                                                                 "first", "items[0]",
+                                                                                 "missing", "items[9].id",
+                                                                                 "count", "count"))
+                                                                 .read(new StringReader(json));
+
+        assertThat(values.get("ids")).containsExactly("1", "2");
+        assertThat(values.get("tags")).containsExactly("a", "b", "c");
+        assertThat(values.get("first")).containsExactly("{\"id\":1,\"tags\":[\"a\",\"b\"]}");
+        assertThat(values.get("missing")).isEmpty();
+        assertThat(values.get("count")).containsExactly("3");
+    }
+
+    @Test
+    public void should_stop_once_all_paths_are_resolved()
+    throws IOException {
+        final String skipped = "{\"skipped\":[" + StringUtils.repeat("{\"a\":[1,2,{\"b\":null}]},", 10_000) + "0]}";
+        // malformed : read further, it would fail
+        final String json = "{\"first\":" + skipped + ",\"wanted\":{\"value\":\"found\",\"other\":1},\"after\":!!!";
+
+        final Map<String, List<String>> values = JsonStreamReader.ofPaths(Map.of("value", "wanted.value"))
+                                                                 .read(new StringReader(json));
+
+        assertThat(values.get("value")).containsExactly("found");
+    }
+
+    @Test
+    public void should_refuse_paths_not_simple() {
+        for (final String path : Arrays.asList("$..field", "items[?(@.id)]", "items[-1]", "$")) {
+            assertThatThrownBy(() -> JsonStreamReader.ofPaths(Map.of("name", path)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(path);
+        }
+    }
+
+}